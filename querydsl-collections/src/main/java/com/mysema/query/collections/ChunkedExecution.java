@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.mysema.query.QueryException;
+
+/**
+ * ChunkedExecution splits random access lists into chunks, applies a function to the
+ * chunks via an ExecutorService and merges the partial results in chunk order
+ */
+public final class ChunkedExecution {
+
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    private final ExecutorService executor;
+
+    private final int threshold;
+
+    private final int parallelism;
+
+    /**
+     * Create a new ChunkedExecution instance
+     *
+     * @param executor executor for the chunk tasks
+     * @param threshold minimum list size for chunked execution
+     */
+    public ChunkedExecution(ExecutorService executor, int threshold) {
+        this(executor, threshold, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new ChunkedExecution instance
+     *
+     * @param executor executor for the chunk tasks
+     * @param threshold minimum list size for chunked execution
+     * @param parallelism amount of threads available in the executor
+     */
+    public ChunkedExecution(ExecutorService executor, int threshold, int parallelism) {
+        this.executor = executor;
+        this.threshold = threshold;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Get whether the given list is processed in chunks
+     *
+     * @param list
+     * @return
+     */
+    public boolean accepts(List<?> list) {
+        return list instanceof RandomAccess && list.size() >= threshold && list.size() > 1;
+    }
+
+    /**
+     * Apply the given function to the chunks of the given list and return the
+     * concatenation of the results in chunk order
+     *
+     * @param <T>
+     * @param list
+     * @param function
+     * @return
+     */
+    public <T> List<T> apply(List<?> list, Function<List<?>, ? extends List<? extends T>> function) {
+        List<T> rv = new ArrayList<T>();
+        for (List<? extends T> partial : this.<List<? extends T>>invoke(list, function)) {
+            rv.addAll(partial);
+        }
+        return rv;
+    }
+
+    /**
+     * Apply the given function to the chunks of the given list and return the
+     * sum of the sizes of the results
+     *
+     * @param list
+     * @param function
+     * @return
+     */
+    public long count(List<?> list, Function<List<?>, ? extends List<?>> function) {
+        long count = 0;
+        for (List<?> partial : this.<List<?>>invoke(list, function)) {
+            count += partial.size();
+        }
+        return count;
+    }
+
+    private <T> List<T> invoke(List<?> list, final Function<List<?>, ? extends T> function) {
+        int size = list.size();
+        int chunks = Math.min(size, parallelism * CHUNKS_PER_PROCESSOR);
+        int chunkSize = (size + chunks - 1) / chunks;
+        List<Future<T>> futures = new ArrayList<Future<T>>(chunks);
+        try {
+            for (int from = 0; from < size; from += chunkSize) {
+                final List<?> chunk = list.subList(from, Math.min(from + chunkSize, size));
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        return function.apply(chunk);
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<T>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            } else {
+                throw new QueryException(e.getCause());
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+}
@@ -14,6 +14,12 @@
 package com.mysema.query.collections;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
 
 import com.mysema.query.dml.DeleteClause;
 import com.mysema.query.types.Path;
@@ -44,14 +50,51 @@ public class ColDeleteClause<T> implements DeleteClause<ColDeleteClause<T>> {
         this(QueryEngine.DEFAULT, expr, col);
     }
 
+    /**
+     * Remove the matching elements from the collection. Sets remove the matches via
+     * their own equality, other collections remove the matched instances by identity,
+     * so equal but distinct elements that didn't match are retained.
+     *
+     * @return amount of matched elements
+     */
+    @SuppressWarnings("unchecked")
     @Override
     public long execute() {
-        int rv = 0;
-        for (T match : query.list(expr)) {
-            col.remove(match);
-            rv++;
+        List<T> matches = query.list(expr);
+        if (matches.isEmpty()) {
+            return 0;
+        } else if (col instanceof Set) {
+            // removeAll would call matches.contains per element for large match lists
+            for (T match : matches) {
+                col.remove(match);
+            }
+        } else {
+            Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            removed.addAll(matches);
+            if (col instanceof List && col instanceof RandomAccess) {
+                // single pass compaction
+                List<T> list = (List<T>)col;
+                int size = list.size(), j = 0;
+                for (int i = 0; i < size; i++) {
+                    T element = list.get(i);
+                    if (!removed.contains(element)) {
+                        if (i != j) {
+                            list.set(j, element);
+                        }
+                        j++;
+                    }
+                }
+                list.subList(j, size).clear();
+            } else {
+                Iterator<? extends T> it = col.iterator();
+                while (it.hasNext()) {
+                    if (removed.contains(it.next())) {
+                        it.remove();
+                    }
+                }
+            }
         }
-        return rv;
+        return matches.size();
     }
     
     @Override
@@ -16,8 +16,10 @@ package com.mysema.query.collections;
 import com.mysema.query.Projectable;
 import com.mysema.query.SimpleQuery;
 import com.mysema.query.types.CollectionExpression;
+import com.mysema.query.types.Expression;
 import com.mysema.query.types.MapExpression;
 import com.mysema.query.types.Path;
+import com.mysema.query.types.Predicate;
 
 /**
  * Query interface for Collection queries
@@ -53,6 +55,23 @@ public interface ColQuery extends SimpleQuery<ColQuery>, Projectable {
      */
     <A> ColQuery from(Path<A> entity, Iterable<? extends A> col);
 
+    /**
+     * Add grouping expressions, aggregates in the projection, having and order by 
+     * are evaluated per group
+     *
+     * @param o group by expressions
+     * @return
+     */
+    ColQuery groupBy(Expression<?>... o);
+
+    /**
+     * Add filters for the groups
+     *
+     * @param o having conditions
+     * @return
+     */
+    ColQuery having(Predicate... o);
+
     /**
      * Define an inner join from the Collection typed path to the alias
      *
@@ -29,6 +29,13 @@ import com.mysema.util.ReflectionUtils;
  */
 public final class ColQueryFunctions {
 
+    private static final ThreadLocal<Calendar> calendar = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
     public static <A extends Comparable<? super A>> boolean between(A a, A b, A c) {
         return a.compareTo(b) >= 0 && a.compareTo(c) <= 0;
     }
@@ -56,7 +63,7 @@ public final class ColQueryFunctions {
     }
 
     private static int getField(Date date, int field){
-        Calendar cal = Calendar.getInstance();
+        Calendar cal = calendar.get();
         cal.setTime(date);
         return cal.get(field);
     }
@@ -90,14 +97,26 @@ public final class ColQueryFunctions {
     }
 
     public static int getYearMonth(Date date){
-        Calendar cal = Calendar.getInstance();
+        Calendar cal = calendar.get();
         cal.setTime(date);
         return cal.get(Calendar.YEAR) * 100 + cal.get(Calendar.MONTH) + 1;
     }
 
     public static boolean like(String str, String like){
+        return str.matches(likeToRegex(like));
+    }
+
+    public static String likeToRegex(String like){
         // TODO : better escaping
-        return str.matches(like.replace("%", ".*").replace('_', '.'));
+        return like.replace("%", ".*").replace('_', '.');
+    }
+
+    public static <T> T get(Object parent, Field field) {
+        try {
+            return (T)field.get(parent);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     public static <T> T get(Object parent, String f) {
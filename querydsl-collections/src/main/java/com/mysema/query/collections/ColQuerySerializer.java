@@ -18,6 +18,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import com.mysema.query.QueryException;
 import com.mysema.query.support.SerializerBase;
@@ -32,6 +33,7 @@ import com.mysema.query.types.PathType;
 import com.mysema.query.types.SubQueryExpression;
 import com.mysema.query.types.Template;
 import com.mysema.util.BeanUtils;
+import com.mysema.util.ReflectionUtils;
 
 /**
  * ColQuerySerializer is a Serializer implementation for the Java language
@@ -74,7 +76,14 @@ public final class ColQuerySerializer extends SerializerBase<ColQuerySerializer>
                         append(ColQueryFunctions.class.getName() + ".<");
                         append(((Class)path.getType()).getName()).append(">get(");
                         handle((Expression<?>) path.getMetadata().getParent());
-                        append(", \""+property+"\")");
+                        f = ReflectionUtils.getFieldOrNull(parentType, property);
+                        if (f != null) {
+                            // prelinked field handle
+                            f.setAccessible(true);
+                            append(", ").handle(new ConstantImpl<Field>(f)).append(")");
+                        } else {
+                            append(", \""+property+"\")");
+                        }
                     }
                 }                
             } catch (Exception e) {
@@ -173,7 +182,15 @@ public final class ColQuerySerializer extends SerializerBase<ColQuerySerializer>
             // TODO : Ops.BETWEEN
         }
 
-        if (operator == Ops.STRING_CAST) {
+        if ((operator == Ops.LIKE || operator == Ops.MATCHES) && args.get(1) instanceof Constant<?>) {
+            // precompiled pattern
+            String regex = ((Constant<?>) args.get(1)).getConstant().toString();
+            if (operator == Ops.LIKE) {
+                regex = ColQueryFunctions.likeToRegex(regex);
+            }
+            handle(new ConstantImpl<Pattern>(Pattern.compile(regex)));
+            append(".matcher(").handle(args.get(0)).append(").matches()");
+        } else if (operator == Ops.STRING_CAST) {
             visitCast(operator, args.get(0), String.class);
         } else if (operator == Ops.NUMCAST) {
             visitCast(operator, args.get(0), (Class<?>) ((Constant<?>) args.get(1)).getConstant());
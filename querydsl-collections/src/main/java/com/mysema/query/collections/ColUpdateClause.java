@@ -13,15 +13,20 @@
  */
 package com.mysema.query.collections;
 
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.mysema.query.QueryException;
 import com.mysema.query.dml.UpdateClause;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.Path;
 import com.mysema.query.types.Predicate;
-import com.mysema.util.BeanMap;
 
 /**
  * ColUpdateClause is an implementation of the UpdateClause interface for Querydsl Collections
@@ -49,19 +54,53 @@ public class ColUpdateClause<T> implements UpdateClause<ColUpdateClause<T>> {
 
     @Override
     public long execute() {
+        // resolve the setters once per execution
+        Method[] setters = new Method[paths.size()];
+        Object[] values = new Object[paths.size()];
+        Map<String, PropertyDescriptor> properties = getProperties(expr.getType());
+        int i = 0;
+        for (Map.Entry<Path<?>,Object> entry : paths.entrySet()) {
+            // TODO : support deep updates as well
+            String propertyName = entry.getKey().getMetadata().getExpression().toString();
+            PropertyDescriptor property = properties.get(propertyName);
+            if (property == null || property.getWriteMethod() == null) {
+                throw new IllegalArgumentException("The bean of type: " + expr.getType().getName() 
+                        + " has no property called: " + propertyName);
+            }
+            setters[i] = property.getWriteMethod();
+            setters[i].setAccessible(true);
+            values[i] = entry.getValue();
+            i++;
+        }
+
         int rv = 0;
-        for (T match : query.list(expr)) {
-            BeanMap beanMap = new BeanMap(match);
-            for (Map.Entry<Path<?>,Object> entry : paths.entrySet()) {
-                // TODO : support deep updates as well
-                String propertyName = entry.getKey().getMetadata().getExpression().toString();
-                beanMap.put(propertyName, entry.getValue());
+        try {
+            for (T match : query.list(expr)) {
+                for (int j = 0; j < setters.length; j++) {
+                    setters[j].invoke(match, values[j]);
+                }
+                rv++;
             }
-            rv++;
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        } catch (InvocationTargetException e) {
+            throw new QueryException(e.getCause());
         }
         return rv;
     }
 
+    private static Map<String, PropertyDescriptor> getProperties(Class<?> type) {
+        try {
+            Map<String, PropertyDescriptor> rv = new HashMap<String, PropertyDescriptor>();
+            for (PropertyDescriptor property : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                rv.put(property.getName(), property);
+            }
+            return rv;
+        } catch (IntrospectionException e) {
+            throw new QueryException(e);
+        }
+    }
+
     @Override
     public <U> ColUpdateClause<T> set(Path<U> path, U value) {
         paths.put(path, value);
@@ -16,12 +16,19 @@ package com.mysema.query.collections;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.mysema.codegen.Evaluator;
 import com.mysema.commons.lang.IteratorAdapter;
 import com.mysema.query.JoinExpression;
@@ -33,6 +40,7 @@ import com.mysema.query.types.Expression;
 import com.mysema.query.types.Operation;
 import com.mysema.query.types.Order;
 import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.Predicate;
 
 /**
  * Default implementation of the QueryEngine interface
@@ -45,13 +53,42 @@ public class DefaultQueryEngine implements QueryEngine {
 
     private final DefaultEvaluatorFactory evaluatorFactory;
 
+    @Nullable
+    private final ChunkedExecution parallel;
+
     public DefaultQueryEngine(DefaultEvaluatorFactory evaluatorFactory) {
         this.evaluatorFactory = evaluatorFactory;
+        this.parallel = null;
+    }
+
+    /**
+     * Create a DefaultQueryEngine which evaluates the filter and projection of single
+     * source queries in parallel, when the source is a random access list with at least
+     * parallelThreshold elements
+     *
+     * @param evaluatorFactory
+     * @param executor executor for the parallel evaluation
+     * @param parallelThreshold minimum source size for parallel evaluation
+     */
+    public DefaultQueryEngine(DefaultEvaluatorFactory evaluatorFactory, 
+            ExecutorService executor, int parallelThreshold) {
+        this.evaluatorFactory = evaluatorFactory;
+        this.parallel = new ChunkedExecution(executor, parallelThreshold);
     }
 
     @Override
     public long count(QueryMetadata metadata, Map<Expression<?>, Iterable<?>> iterables){
         if (metadata.getJoins().size() == 1) {
+            if (parallel != null && metadata.getWhere() != null && !metadata.isDistinct()
+                    && metadata.getGroupBy().isEmpty()) {
+                List<?> list = getSingleSource(iterables);
+                if (parallel.accepts(list)) {
+                    Expression<?> source = metadata.getJoins().get(0).getTarget();
+                    Evaluator<List<?>> evaluator = (Evaluator)evaluatorFactory
+                            .createEvaluator(metadata, source, metadata.getWhere());
+                    return parallel.count(list, new EvaluatorFunction(evaluator));
+                }
+            }
             return evaluateSingleSource(metadata, iterables, true).size();
         } else {
             return evaluateMultipleSources(metadata, iterables, true).size();
@@ -85,19 +122,10 @@ public class DefaultQueryEngine implements QueryEngine {
 
     private <T> List<T> distinct(List<T> list) {
         List<T> rv = new ArrayList<T>(list.size());
-        if (!list.isEmpty() && list.get(0).getClass().isArray()) {
-            Set set = new HashSet(list.size());
-            for (T o : list) {
-                if (set.add(Arrays.asList((Object[])o))) {
-                    rv.add(o);
-                }
-            }
-            return rv;
-        } else {
-            for (T o : list) {
-                if (!rv.contains(o)) {
-                    rv.add(o);
-                }
+        Set<Object> set = new HashSet<Object>(list.size());
+        for (T o : list) {
+            if (set.add(o instanceof Object[] ? Arrays.asList((Object[])o) : o)) {
+                rv.add(o);
             }
         }
         return rv;
@@ -115,19 +143,25 @@ public class DefaultQueryEngine implements QueryEngine {
         }
         List<?> list = ev.evaluate(iterableList.toArray());
 
-        if (!count && !list.isEmpty()) {
-            List<Expression<?>> sources = new ArrayList<Expression<?>>();
-            for (JoinExpression join : metadata.getJoins()) {
-                if (join.getType() == JoinType.DEFAULT){
-                    sources.add(join.getTarget());
-                } else {
-                    Operation target = (Operation) join.getTarget();
-                    sources.add(target.getArg(1));
-                }
+        List<Expression<?>> sources = new ArrayList<Expression<?>>();
+        for (JoinExpression join : metadata.getJoins()) {
+            if (join.getType() == JoinType.DEFAULT){
+                sources.add(join.getTarget());
+            } else {
+                Operation target = (Operation) join.getTarget();
+                sources.add(target.getArg(1));
             }
+        }
+
+        // group by + having
+        if (isGrouped(metadata, count)) {
+            return evaluateGrouped(metadata, sources, list, count);
+        }
+
+        if (!count && !list.isEmpty()) {
             // ordered
             if (!metadata.getOrderBy().isEmpty()) {
-                order(metadata, sources, list);
+                list = order(metadata, metadata.getOrderBy(), sources, list);
             }
             // limit + offset
             if (metadata.getModifiers().isRestricting()) {
@@ -137,7 +171,7 @@ public class DefaultQueryEngine implements QueryEngine {
                 return list;
             }
             // projection
-            list = project(metadata, sources, list);
+            list = project(metadata, sources, metadata.getProjection().get(0), list);
         }
 
         // distinct
@@ -152,29 +186,28 @@ public class DefaultQueryEngine implements QueryEngine {
             Iterable<?>> iterables, boolean count) {
         Expression<?> source = metadata.getJoins().get(0).getTarget();
         List<Expression<?>> sources = Collections.<Expression<?>>singletonList(source);
-        Iterable<?> iterable = iterables.values().iterator().next();
-        List<?> list;
-        if (iterable instanceof List) {
-            list = (List)iterable;
-        } else {
-            list = IteratorAdapter.asList(iterable.iterator());
-        }
+        List<?> list = getSingleSource(iterables);
 
         // from & where
         if (metadata.getWhere() != null) {
             Evaluator<List<?>> evaluator = (Evaluator)evaluatorFactory
                     .createEvaluator(metadata, source, metadata.getWhere());
-            list = evaluator.evaluate(list);
+            if (parallel != null && parallel.accepts(list)) {
+                list = parallel.apply(list, new EvaluatorFunction(evaluator));
+            } else {
+                list = evaluator.evaluate(list);
+            }
+        }
+
+        // group by + having
+        if (isGrouped(metadata, count)) {
+            return evaluateGrouped(metadata, sources, list, count);
         }
 
         if (!count && !list.isEmpty()) {
             // ordered
             if (!metadata.getOrderBy().isEmpty()){
-                // clone list
-                if (list == iterable) {
-                    list = new ArrayList(list);
-                }
-                order(metadata, sources, list);
+                list = order(metadata, metadata.getOrderBy(), sources, list);
             }
             // limit + offset
             if (metadata.getModifiers().isRestricting()) {
@@ -185,7 +218,7 @@ public class DefaultQueryEngine implements QueryEngine {
             }
             // projection
             if (metadata.getProjection().size() > 1 || !metadata.getProjection().get(0).equals(source)) {
-                list = project(metadata, sources, list);
+                list = project(metadata, sources, metadata.getProjection().get(0), list);
             }
         }
 
@@ -198,23 +231,174 @@ public class DefaultQueryEngine implements QueryEngine {
 
     }
 
-    private void order(QueryMetadata metadata, List<Expression<?>> sources, List<?> list) {
+    private List<?> getSingleSource(Map<Expression<?>, Iterable<?>> iterables) {
+        Iterable<?> iterable = iterables.values().iterator().next();
+        if (iterable instanceof List) {
+            return (List)iterable;
+        } else {
+            return IteratorAdapter.asList(iterable.iterator());
+        }
+    }
+
+    private boolean isGrouped(QueryMetadata metadata, boolean count) {
+        if (!metadata.getGroupBy().isEmpty()) {
+            return true;
+        } else {
+            return !count && HashAggregation.containsAggregate(metadata.getProjection().get(0));
+        }
+    }
+
+    private List evaluateGrouped(QueryMetadata metadata, List<Expression<?>> sources, 
+            List<?> list, boolean count) {
+        // replace aggregates with variables
+        HashAggregation aggregation = new HashAggregation();
+        Expression<?> projection = null;
+        if (!count) {
+            projection = aggregation.replace(metadata.getProjection().get(0));
+        }
+        Predicate having = null;
+        if (metadata.getHaving() != null) {
+            having = (Predicate) aggregation.replace(metadata.getHaving());
+        }
+        List<OrderSpecifier<?>> orderBy = new ArrayList<OrderSpecifier<?>>(metadata.getOrderBy().size());
+        for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+            orderBy.add(new OrderSpecifier(order.getOrder(), aggregation.replace(order.getTarget())));
+        }
+
+        // group key and aggregate argument evaluators
+        List<? extends Expression<?>> groupBy = metadata.getGroupBy();
+        Evaluator keyEvaluator = null;
+        if (groupBy.size() == 1) {
+            keyEvaluator = evaluatorFactory.create(metadata, sources, groupBy.get(0));
+        } else if (groupBy.size() > 1) {
+            keyEvaluator = evaluatorFactory.create(metadata, sources, 
+                    new ArrayConstructorExpression<Object>(groupBy.toArray(new Expression[groupBy.size()])));
+        }
+        List<Expression<?>> arguments = aggregation.getArguments();
+        List<Expression<?>> evaluated = new ArrayList<Expression<?>>(arguments.size());
+        for (Expression<?> argument : arguments) {
+            if (argument != null) {
+                evaluated.add(argument);
+            }
+        }
+        Evaluator<Object[]> argsEvaluator = null;
+        if (!evaluated.isEmpty()) {
+            argsEvaluator = evaluatorFactory.create(metadata, sources, 
+                    new ArrayConstructorExpression<Object>(evaluated.toArray(new Expression[evaluated.size()])));
+        }
+
+        // aggregate
+        Map<Object, Object[]> groups = new LinkedHashMap<Object, Object[]>();
+        Map<Object, HashAggregation.Aggregator[]> aggregators = new HashMap<Object, HashAggregation.Aggregator[]>();
+        for (Object row : list) {
+            Object[] args = row instanceof Object[] ? (Object[])row : new Object[]{row};
+            Object key = keyEvaluator != null ? HashAggregation.toHashKey(keyEvaluator.evaluate(args)) : null;
+            HashAggregation.Aggregator[] aggs = aggregators.get(key);
+            if (aggs == null) {
+                aggs = aggregation.createAggregators();
+                aggregators.put(key, aggs);
+                groups.put(key, args);
+            }
+            Object[] values = argsEvaluator != null ? argsEvaluator.evaluate(args) : null;
+            for (int i = 0, j = 0; i < aggs.length; i++) {
+                aggs[i].add(arguments.get(i) != null ? values[j++] : null);
+            }
+        }
+        if (groupBy.isEmpty() && groups.isEmpty()) {
+            groups.put(null, new Object[sources.size()]);
+            aggregators.put(null, aggregation.createAggregators());
+        }
+
+        // group rows with source values of the first row followed by the aggregates
+        List<Object[]> rows = new ArrayList<Object[]>(groups.size());
+        for (Map.Entry<Object, Object[]> entry : groups.entrySet()) {
+            HashAggregation.Aggregator[] aggs = aggregators.get(entry.getKey());
+            Object[] row = new Object[sources.size() + aggs.length];
+            System.arraycopy(entry.getValue(), 0, row, 0, sources.size());
+            for (int i = 0; i < aggs.length; i++) {
+                row[sources.size() + i] = aggs[i].getResult();
+            }
+            rows.add(row);
+        }
+        List<Expression<?>> groupSources = new ArrayList<Expression<?>>(sources);
+        groupSources.addAll(aggregation.getPaths());
+
+        // having
+        if (having != null) {
+            Evaluator<Boolean> havingEvaluator = evaluatorFactory.create(metadata, groupSources, having);
+            List<Object[]> filtered = new ArrayList<Object[]>(rows.size());
+            for (Object[] row : rows) {
+                if (Boolean.TRUE.equals(havingEvaluator.evaluate(row))) {
+                    filtered.add(row);
+                }
+            }
+            rows = filtered;
+        }
+
+        List<?> rv = rows;
+        if (!count && !rv.isEmpty()) {
+            // ordered
+            if (!orderBy.isEmpty()) {
+                rv = order(metadata, orderBy, groupSources, rv);
+            }
+            // limit + offset
+            if (metadata.getModifiers().isRestricting()) {
+                rv = metadata.getModifiers().subList(rv);
+            }
+            if (rv.isEmpty()) {
+                return rv;
+            }
+            // projection
+            rv = project(metadata, groupSources, projection, rv);
+        }
+
+        // distinct
+        if (metadata.isDistinct()) {
+            rv = distinct(rv);
+        }
+
+        return rv;
+    }
+
+    private List<?> order(QueryMetadata metadata, List<OrderSpecifier<?>> orderBy, 
+            List<Expression<?>> sources, List<?> list) {
         // create a projection for the order
-        List<OrderSpecifier<?>> orderBy = metadata.getOrderBy();
         Expression<Object>[] orderByExpr = new Expression[orderBy.size()];
         boolean[] directions = new boolean[orderBy.size()];
         for (int i = 0; i < orderBy.size(); i++) {
             orderByExpr[i] = (Expression) orderBy.get(i).getTarget();
             directions[i] = orderBy.get(i).getOrder() == Order.ASC;
         }
-        Expression<?> expr = new ArrayConstructorExpression<Object>(Object[].class, orderByExpr);
+        Expression<?> expr;
+        if (orderByExpr.length == 1) {
+            expr = orderByExpr[0];
+        } else {
+            expr = new ArrayConstructorExpression<Object>(Object[].class, orderByExpr);
+        }
         Evaluator orderEvaluator = evaluatorFactory.create(metadata, sources, expr);
-        Collections.sort(list, new MultiComparator(orderEvaluator, directions));
+        RowSorter sorter = new RowSorter(orderEvaluator, expr.getType(), directions);
+
+        // only the first offset + limit rows are needed
+        QueryModifiers modifiers = metadata.getModifiers();
+        Long max = null;
+        if (modifiers.getLimit() != null) {
+            max = modifiers.getLimit() + (modifiers.getOffset() != null ? modifiers.getOffset() : 0l);
+        }
+        return sorter.sort(list, max);
     }
 
-    private List<?> project(QueryMetadata metadata, List<Expression<?>> sources, List<?> list) {
-        Evaluator projectionEvaluator = evaluatorFactory.create(metadata, sources, metadata.getProjection().get(0));
-        EvaluatorFunction transformer = new EvaluatorFunction(projectionEvaluator);
+    private List<?> project(QueryMetadata metadata, List<Expression<?>> sources, 
+            Expression<?> projection, List<?> list) {
+        Evaluator projectionEvaluator = evaluatorFactory.create(metadata, sources, projection);
+        final EvaluatorFunction transformer = new EvaluatorFunction(projectionEvaluator);
+        if (parallel != null && sources.size() == 1 && parallel.accepts(list)) {
+            return parallel.apply(list, new Function<List<?>, List<?>>() {
+                @Override
+                public List<?> apply(List<?> chunk) {
+                    return Lists.newArrayList(Iterators.transform(chunk.iterator(), transformer));
+                }
+            });
+        }
         List target = new ArrayList();
         Iterators.addAll(target, Iterators.transform(list.iterator(), transformer));
         return target;
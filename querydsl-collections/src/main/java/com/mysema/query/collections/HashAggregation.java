@@ -0,0 +1,435 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.collections;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+import com.mysema.query.types.ArrayConstructorExpression;
+import com.mysema.query.types.Constant;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.ExpressionBase;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.OperationImpl;
+import com.mysema.query.types.Operator;
+import com.mysema.query.types.Ops;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.PathImpl;
+import com.mysema.query.types.PredicateOperation;
+import com.mysema.query.types.SubQueryExpression;
+import com.mysema.query.types.TemplateExpression;
+import com.mysema.query.types.TemplateExpressionImpl;
+import com.mysema.query.types.Visitor;
+import com.mysema.query.types.template.BooleanTemplate;
+
+/**
+ * HashAggregation replaces aggregate operations in expressions with variables and
+ * computes the values of these variables per group
+ */
+@SuppressWarnings("unchecked")
+public final class HashAggregation {
+
+    private static final Set<Operator<?>> AGGREGATES = ImmutableSet.<Operator<?>>of(
+            Ops.AggOps.COUNT_AGG, Ops.AggOps.COUNT_ALL_AGG, Ops.AggOps.COUNT_DISTINCT_AGG,
+            Ops.AggOps.SUM_AGG, Ops.AggOps.AVG_AGG, Ops.AggOps.MIN_AGG, Ops.AggOps.MAX_AGG);
+
+    /**
+     * Get whether the given expression contains aggregate operations
+     *
+     * @param expr
+     * @return
+     */
+    public static boolean containsAggregate(Expression<?> expr) {
+        HashAggregation aggregation = new HashAggregation();
+        aggregation.replace(expr);
+        return !aggregation.aggregates.isEmpty();
+    }
+
+    /**
+     * Aggregator holds the aggregation state of a single aggregate in a single group
+     */
+    public abstract static class Aggregator {
+
+        public abstract void add(@Nullable Object value);
+
+        @Nullable
+        public abstract Object getResult();
+
+    }
+
+    private static class Count extends Aggregator {
+
+        private final boolean all;
+
+        private long count;
+
+        Count(boolean all) {
+            this.all = all;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (all || value != null) {
+                count++;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return Long.valueOf(count);
+        }
+
+    }
+
+    private static class CountDistinct extends Aggregator {
+
+        private final Set<Object> values = new HashSet<Object>();
+
+        @Override
+        public void add(Object value) {
+            if (value != null) {
+                values.add(value);
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return Long.valueOf(values.size());
+        }
+
+    }
+
+    private static class Sum extends Aggregator {
+
+        private final Class<?> type;
+
+        private boolean empty = true;
+
+        private long longSum;
+
+        private double doubleSum;
+
+        @Nullable
+        private BigDecimal bigSum;
+
+        Sum(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            empty = false;
+            if (value instanceof BigDecimal || value instanceof BigInteger || bigSum != null) {
+                BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal)value
+                        : value instanceof BigInteger ? new BigDecimal((BigInteger)value)
+                        : new BigDecimal(value.toString());
+                bigSum = bigSum != null ? bigSum.add(decimal) : decimal;
+            } else if (value instanceof Double || value instanceof Float) {
+                doubleSum += ((Number)value).doubleValue();
+            } else {
+                longSum += ((Number)value).longValue();
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            if (empty) {
+                return null;
+            } else if (bigSum != null) {
+                BigDecimal sum = bigSum.add(new BigDecimal(longSum)).add(new BigDecimal(doubleSum));
+                return cast(sum, type);
+            } else if (doubleSum != 0.0) {
+                return cast(Double.valueOf(doubleSum + longSum), type);
+            } else {
+                return cast(Long.valueOf(longSum), type);
+            }
+        }
+
+    }
+
+    private static class Avg extends Aggregator {
+
+        private long count;
+
+        private double sum;
+
+        @Override
+        public void add(Object value) {
+            if (value != null) {
+                count++;
+                sum += ((Number)value).doubleValue();
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return count > 0 ? Double.valueOf(sum / count) : null;
+        }
+
+    }
+
+    private static class MinMax extends Aggregator {
+
+        private final boolean min;
+
+        @Nullable
+        private Comparable<Object> value;
+
+        MinMax(boolean min) {
+            this.min = min;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value != null) {
+                if (this.value == null) {
+                    this.value = (Comparable<Object>)value;
+                } else {
+                    int res = this.value.compareTo(value);
+                    if (min ? res > 0 : res < 0) {
+                        this.value = (Comparable<Object>)value;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return value;
+        }
+
+    }
+
+    private static Object cast(Number number, Class<?> type) {
+        if (type.equals(Long.class) || type.equals(Number.class)) {
+            return Long.valueOf(number.longValue());
+        } else if (type.equals(Integer.class)) {
+            return Integer.valueOf(number.intValue());
+        } else if (type.equals(Short.class)) {
+            return Short.valueOf(number.shortValue());
+        } else if (type.equals(Byte.class)) {
+            return Byte.valueOf(number.byteValue());
+        } else if (type.equals(Double.class)) {
+            return Double.valueOf(number.doubleValue());
+        } else if (type.equals(Float.class)) {
+            return Float.valueOf(number.floatValue());
+        } else if (type.equals(BigDecimal.class)) {
+            return number instanceof BigDecimal ? number : new BigDecimal(number.toString());
+        } else if (type.equals(BigInteger.class)) {
+            return number instanceof BigDecimal ? ((BigDecimal)number).toBigInteger()
+                    : BigInteger.valueOf(number.longValue());
+        } else {
+            throw new IllegalArgumentException("Unsupported sum type " + type.getName());
+        }
+    }
+
+    private static class ReplacedFactoryExpression<T> extends ExpressionBase<T> implements FactoryExpression<T> {
+
+        private static final long serialVersionUID = 6351853466237428546L;
+
+        private final FactoryExpression<T> inner;
+
+        private final List<Expression<?>> args;
+
+        ReplacedFactoryExpression(FactoryExpression<T> inner, List<Expression<?>> args) {
+            super(inner.getType());
+            this.inner = inner;
+            this.args = args;
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public T newInstance(Object... a) {
+            return inner.newInstance(a);
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+
+    }
+
+    private final Map<Operation<?>, Path<?>> aggregates = new LinkedHashMap<Operation<?>, Path<?>>();
+
+    private final Visitor<Expression<?>, Void> replacer = new Visitor<Expression<?>, Void>() {
+
+        @Override
+        public Expression<?> visit(Constant<?> expr, Void context) {
+            return expr;
+        }
+
+        @Override
+        public Expression<?> visit(FactoryExpression<?> expr, Void context) {
+            List<Expression<?>> args = replace(expr.getArgs());
+            if (args.equals(expr.getArgs())) {
+                return expr;
+            } else if (expr instanceof ArrayConstructorExpression<?>) {
+                return new ArrayConstructorExpression<Object>(args.toArray(new Expression[args.size()]));
+            } else {
+                return new ReplacedFactoryExpression<Object>((FactoryExpression<Object>)expr, args);
+            }
+        }
+
+        @Override
+        public Expression<?> visit(Operation<?> expr, Void context) {
+            if (AGGREGATES.contains(expr.getOperator())) {
+                Path<?> path = aggregates.get(expr);
+                if (path == null) {
+                    path = new PathImpl<Object>(expr.getType(), "agg" + aggregates.size() + "_");
+                    aggregates.put(expr, path);
+                }
+                return path;
+            }
+            List<Expression<?>> args = replace(expr.getArgs());
+            if (args.equals(expr.getArgs())) {
+                return expr;
+            } else if (expr.getType().equals(Boolean.class)) {
+                return new PredicateOperation((Operator<Boolean>)expr.getOperator(), args);
+            } else {
+                return new OperationImpl<Object>(expr.getType(), (Operator)expr.getOperator(), args);
+            }
+        }
+
+        @Override
+        public Expression<?> visit(ParamExpression<?> expr, Void context) {
+            return expr;
+        }
+
+        @Override
+        public Expression<?> visit(Path<?> expr, Void context) {
+            return expr;
+        }
+
+        @Override
+        public Expression<?> visit(SubQueryExpression<?> expr, Void context) {
+            return expr;
+        }
+
+        @Override
+        public Expression<?> visit(TemplateExpression<?> expr, Void context) {
+            List<Expression<?>> args = replace(expr.getArgs());
+            Expression<?>[] argArray = args.toArray(new Expression[args.size()]);
+            if (args.equals(expr.getArgs())) {
+                return expr;
+            } else if (expr.getType().equals(Boolean.class)) {
+                return BooleanTemplate.create(expr.getTemplate(), argArray);
+            } else {
+                return TemplateExpressionImpl.create((Class<Object>)expr.getType(), expr.getTemplate(), argArray);
+            }
+        }
+
+        private List<Expression<?>> replace(List<?> exprs) {
+            List<Expression<?>> rv = new ArrayList<Expression<?>>(exprs.size());
+            for (Object expr : exprs) {
+                rv.add(((Expression<?>)expr).accept(this, null));
+            }
+            return rv;
+        }
+
+    };
+
+    /**
+     * Replace the aggregate operations in the given expression with variables
+     *
+     * @param <T>
+     * @param expr
+     * @return
+     */
+    public <T> Expression<T> replace(Expression<T> expr) {
+        return (Expression<T>) expr.accept(replacer, null);
+    }
+
+    /**
+     * Get the variables of the replaced aggregates
+     *
+     * @return
+     */
+    public List<Path<?>> getPaths() {
+        return new ArrayList<Path<?>>(aggregates.values());
+    }
+
+    /**
+     * Get the arguments of the replaced aggregates, null for count(*)
+     *
+     * @return
+     */
+    public List<Expression<?>> getArguments() {
+        List<Expression<?>> rv = new ArrayList<Expression<?>>(aggregates.size());
+        for (Operation<?> aggregate : aggregates.keySet()) {
+            rv.add(aggregate.getArgs().isEmpty() ? null : aggregate.getArg(0));
+        }
+        return rv;
+    }
+
+    /**
+     * Create a new set of aggregators for a group
+     *
+     * @return
+     */
+    public Aggregator[] createAggregators() {
+        Aggregator[] rv = new Aggregator[aggregates.size()];
+        int i = 0;
+        for (Operation<?> aggregate : aggregates.keySet()) {
+            Operator<?> op = aggregate.getOperator();
+            if (op == Ops.AggOps.COUNT_AGG) {
+                rv[i] = new Count(false);
+            } else if (op == Ops.AggOps.COUNT_ALL_AGG) {
+                rv[i] = new Count(true);
+            } else if (op == Ops.AggOps.COUNT_DISTINCT_AGG) {
+                rv[i] = new CountDistinct();
+            } else if (op == Ops.AggOps.SUM_AGG) {
+                rv[i] = new Sum(aggregate.getType());
+            } else if (op == Ops.AggOps.AVG_AGG) {
+                rv[i] = new Avg();
+            } else if (op == Ops.AggOps.MIN_AGG) {
+                rv[i] = new MinMax(true);
+            } else {
+                rv[i] = new MinMax(false);
+            }
+            i++;
+        }
+        return rv;
+    }
+
+    /**
+     * Get the hash key for the given group key
+     *
+     * @param key
+     * @return
+     */
+    public static Object toHashKey(@Nullable Object key) {
+        return key instanceof Object[] ? Arrays.asList((Object[])key) : key;
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import javax.annotation.Nullable;
+
+import com.google.common.primitives.Primitives;
+import com.mysema.codegen.Evaluator;
+import com.mysema.query.util.NullSafeComparableComparator;
+
+/**
+ * RowSorter orders rows by precomputed order keys. The keys of each row are evaluated
+ * only once, and when only the first rows of the ordered result are needed a bounded heap
+ * is used instead of a full sort.
+ *
+ * <p>Single numeric keys are held and compared as primitives.</p>
+ */
+public final class RowSorter {
+
+    @SuppressWarnings("unchecked")
+    private static final Comparator<Object> naturalOrder = (Comparator)new NullSafeComparableComparator();
+
+    private enum KeyType { LONG, DOUBLE, OBJECT, ARRAY }
+
+    private abstract static class Entry {
+
+        Object row;
+
+        int index;
+
+        abstract void setKey(@Nullable Object key);
+
+    }
+
+    private static final class LongEntry extends Entry {
+
+        long key;
+
+        boolean isNull;
+
+        @Override
+        void setKey(Object key) {
+            isNull = key == null;
+            this.key = isNull ? 0l : ((Number)key).longValue();
+        }
+
+    }
+
+    private static final class DoubleEntry extends Entry {
+
+        double key;
+
+        boolean isNull;
+
+        @Override
+        void setKey(Object key) {
+            isNull = key == null;
+            this.key = isNull ? 0.0 : ((Number)key).doubleValue();
+        }
+
+    }
+
+    private static final class ObjectEntry extends Entry {
+
+        Object key;
+
+        @Override
+        void setKey(Object key) {
+            this.key = key;
+        }
+
+    }
+
+    private static int compareIndex(Entry e1, Entry e2) {
+        return e1.index < e2.index ? -1 : (e1.index == e2.index ? 0 : 1);
+    }
+
+    private static int compareObject(@Nullable Object o1, @Nullable Object o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        } else if (o2 == null) {
+            return 1;
+        } else {
+            return naturalOrder.compare(o1, o2);
+        }
+    }
+
+    private final Evaluator<?> keyEvaluator;
+
+    private final KeyType keyType;
+
+    private final boolean[] asc;
+
+    private final Comparator<Entry> comparator;
+
+    /**
+     * Create a new RowSorter instance
+     *
+     * @param keyEvaluator evaluator for the order key, returns an Object[] of keys if more
+     *        than one direction is given
+     * @param keyClass type of the order key, used only for single key orders
+     * @param directions true for ascending and false for descending order
+     */
+    public RowSorter(Evaluator<?> keyEvaluator, Class<?> keyClass, boolean[] directions) {
+        this.keyEvaluator = keyEvaluator;
+        this.asc = directions.clone();
+        if (asc.length > 1) {
+            keyType = KeyType.ARRAY;
+        } else {
+            Class<?> type = Primitives.wrap(keyClass);
+            if (type.equals(Long.class) || type.equals(Integer.class)
+             || type.equals(Short.class) || type.equals(Byte.class)) {
+                keyType = KeyType.LONG;
+            } else if (type.equals(Double.class) || type.equals(Float.class)) {
+                keyType = KeyType.DOUBLE;
+            } else {
+                keyType = KeyType.OBJECT;
+            }
+        }
+        this.comparator = createComparator();
+    }
+
+    private Comparator<Entry> createComparator() {
+        final boolean first = asc[0];
+        switch (keyType) {
+        case LONG: return new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                LongEntry e1 = (LongEntry)o1, e2 = (LongEntry)o2;
+                int res;
+                if (e1.isNull) {
+                    res = e2.isNull ? 0 : -1;
+                } else if (e2.isNull) {
+                    res = 1;
+                } else {
+                    res = e1.key < e2.key ? -1 : (e1.key == e2.key ? 0 : 1);
+                }
+                if (res != 0) {
+                    return first ? res : -res;
+                }
+                return compareIndex(e1, e2);
+            }
+        };
+        case DOUBLE: return new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                DoubleEntry e1 = (DoubleEntry)o1, e2 = (DoubleEntry)o2;
+                int res;
+                if (e1.isNull) {
+                    res = e2.isNull ? 0 : -1;
+                } else if (e2.isNull) {
+                    res = 1;
+                } else {
+                    res = Double.compare(e1.key, e2.key);
+                }
+                if (res != 0) {
+                    return first ? res : -res;
+                }
+                return compareIndex(e1, e2);
+            }
+        };
+        case OBJECT: return new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                ObjectEntry e1 = (ObjectEntry)o1, e2 = (ObjectEntry)o2;
+                int res = compareObject(e1.key, e2.key);
+                if (res != 0) {
+                    return first ? res : -res;
+                }
+                return compareIndex(e1, e2);
+            }
+        };
+        default: return new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                Object[] k1 = (Object[])((ObjectEntry)o1).key, k2 = (Object[])((ObjectEntry)o2).key;
+                for (int i = 0; i < k1.length; i++) {
+                    int res = compareObject(k1[i], k2[i]);
+                    if (res != 0) {
+                        return asc[i] ? res : -res;
+                    }
+                }
+                return compareIndex(o1, o2);
+            }
+        };
+        }
+    }
+
+    private Entry decorate(@Nullable Entry entry, Object row, int index) {
+        if (entry == null) {
+            switch (keyType) {
+            case LONG:   entry = new LongEntry(); break;
+            case DOUBLE: entry = new DoubleEntry(); break;
+            default:     entry = new ObjectEntry();
+            }
+        }
+        entry.row = row;
+        entry.index = index;
+        if (row != null && row.getClass().isArray()) {
+            entry.setKey(keyEvaluator.evaluate((Object[])row));
+        } else {
+            entry.setKey(keyEvaluator.evaluate(row));
+        }
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> undecorate(Entry[] entries) {
+        List<T> rv = new ArrayList<T>(entries.length);
+        for (Entry entry : entries) {
+            rv.add((T)entry.row);
+        }
+        return rv;
+    }
+
+    /**
+     * Get the given rows in order
+     *
+     * @param rows rows to be ordered
+     * @return ordered rows as a new list
+     */
+    public <T> List<T> sort(List<T> rows) {
+        return sort(rows, null);
+    }
+
+    /**
+     * Get the first rows of the given rows in order
+     *
+     * @param rows rows to be ordered
+     * @param max maximum amount of rows to be returned or null for all rows
+     * @return first max rows in order as a new list
+     */
+    public <T> List<T> sort(List<T> rows, @Nullable Long max) {
+        int size = rows.size();
+        if (max == null || max.longValue() >= size) {
+            Entry[] entries = new Entry[size];
+            int i = 0;
+            for (T row : rows) {
+                entries[i] = decorate(null, row, i);
+                i++;
+            }
+            Arrays.sort(entries, comparator);
+            return undecorate(entries);
+
+        } else if (max.longValue() <= 0l) {
+            return new ArrayList<T>();
+
+        } else {
+            // bounded heap with the greatest retained entry at the head
+            int n = max.intValue();
+            PriorityQueue<Entry> heap = new PriorityQueue<Entry>(n, Collections.reverseOrder(comparator));
+            Entry spare = null;
+            int i = 0;
+            for (T row : rows) {
+                Entry entry = decorate(spare, row, i++);
+                if (heap.size() < n) {
+                    heap.add(entry);
+                    spare = null;
+                } else if (comparator.compare(entry, heap.peek()) < 0) {
+                    spare = heap.poll();
+                    heap.add(entry);
+                } else {
+                    spare = entry;
+                }
+            }
+            Entry[] entries = heap.toArray(new Entry[heap.size()]);
+            Arrays.sort(entries, comparator);
+            return undecorate(entries);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AggregationTest extends AbstractQueryTest {
+    
+    private final List<Cat> cats = Arrays.asList(
+            new Cat("Bob", 1), new Cat("Bob", 2), new Cat("Bob", 3), 
+            new Cat("Kitty", 4), new Cat("Kitty", 5), new Cat("Alex", 6));
+    
+    @Test
+    public void Count() {
+        List<Object[]> rows = query().from(cat, cats).groupBy(cat.name).list(cat.name, cat.id.count());
+        assertEquals(3, rows.size());
+        assertArrayEquals(new Object[]{"Bob", 3l}, rows.get(0));
+        assertArrayEquals(new Object[]{"Kitty", 2l}, rows.get(1));
+        assertArrayEquals(new Object[]{"Alex", 1l}, rows.get(2));
+    }
+    
+    @Test
+    public void Sum_Avg_Min_Max() {
+        List<Object[]> rows = query().from(cat, cats).groupBy(cat.name).orderBy(cat.name.asc())
+            .list(cat.name, cat.id.sum(), cat.id.avg(), cat.id.min(), cat.id.max());
+        assertArrayEquals(new Object[]{"Alex", 6, 6.0, 6, 6}, rows.get(0));
+        assertArrayEquals(new Object[]{"Bob", 6, 2.0, 1, 3}, rows.get(1));
+        assertArrayEquals(new Object[]{"Kitty", 9, 4.5, 4, 5}, rows.get(2));
+    }
+    
+    @Test
+    public void Having() {
+        assertEquals(Arrays.asList("Bob", "Kitty"), 
+            query().from(cat, cats).groupBy(cat.name).having(cat.id.count().gt(1)).list(cat.name));
+        assertEquals(2, 
+            query().from(cat, cats).groupBy(cat.name).having(cat.id.count().gt(1)).count());
+    }
+    
+    @Test
+    public void Order_By_Aggregate() {
+        assertEquals(Arrays.asList("Kitty", "Bob", "Alex"), 
+            query().from(cat, cats).groupBy(cat.name).orderBy(cat.id.sum().desc(), cat.name.asc()).list(cat.name));
+        assertEquals(Arrays.asList("Kitty"), 
+            query().from(cat, cats).groupBy(cat.name).orderBy(cat.id.max().desc()).limit(1).list(cat.name));
+    }
+    
+    @Test
+    public void Without_GroupBy() {
+        assertEquals(Long.valueOf(6), query().from(cat, cats).uniqueResult(cat.id.count()));
+        assertEquals(Integer.valueOf(21), query().from(cat, cats).uniqueResult(cat.id.sum()));
+        assertEquals(Integer.valueOf(1), query().from(cat, cats).where(cat.name.eq("Bob")).uniqueResult(cat.id.min()));
+    }
+    
+    @Test
+    public void Multiple_Sources() {
+        List<Object[]> rows = query().from(cat, cats).from(otherCat, cats)
+            .where(cat.name.eq(otherCat.name))
+            .groupBy(cat.name).list(cat.name, otherCat.id.count());
+        assertArrayEquals(new Object[]{"Bob", 9l}, rows.get(0));
+        assertArrayEquals(new Object[]{"Kitty", 4l}, rows.get(1));
+        assertArrayEquals(new Object[]{"Alex", 1l}, rows.get(2));
+    }
+    
+    @Test
+    public void Distinct() {
+        assertEquals(Arrays.asList("Bob", "Kitty", "Alex"), query().from(cat, cats).listDistinct(cat.name));
+    }
+
+}
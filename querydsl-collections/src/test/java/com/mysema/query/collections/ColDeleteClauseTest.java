@@ -17,7 +17,10 @@ import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -38,4 +41,49 @@ public class ColDeleteClauseTest {
         assertEquals("Carl", cats.get(2).getName());
     }
 
+    @Test
+    public void Execute_Multiple() {
+        QCat cat = QCat.cat;
+        List<Cat> cats = new ArrayList<Cat>();
+        for (int i = 0; i < 1000; i++) {
+            cats.add(new Cat("Cat" + i, i));
+        }
+        
+        ColDeleteClause<Cat> deleteClause = new ColDeleteClause<Cat>(cat, cats);
+        deleteClause.where(cat.id.mod(2).eq(0));
+        assertEquals(500, deleteClause.execute());
+        
+        assertEquals(500, cats.size());
+        for (int i = 0; i < cats.size(); i++) {
+            assertEquals(2 * i + 1, cats.get(i).getId());
+        }
+    }
+    
+    @Test
+    public void Execute_LinkedList() {
+        QCat cat = QCat.cat;
+        List<Cat> cats = new LinkedList<Cat>(Arrays.asList(new Cat("Ann"), new Cat("Bob"), new Cat("John"), new Cat("Bob")));
+
+        ColDeleteClause<Cat> deleteClause = new ColDeleteClause<Cat>(cat, cats);
+        deleteClause.where(cat.name.eq("Bob"));
+        assertEquals(2, deleteClause.execute());
+
+        assertEquals(2, cats.size());
+        assertEquals("Ann", cats.get(0).getName());
+        assertEquals("John", cats.get(1).getName());
+    }
+    
+    @Test
+    public void Execute_Set() {
+        QCat cat = QCat.cat;
+        Set<Cat> cats = new HashSet<Cat>(Arrays.asList(new Cat("Ann"), new Cat("Bob"), new Cat("John")));
+
+        ColDeleteClause<Cat> deleteClause = new ColDeleteClause<Cat>(cat, cats);
+        deleteClause.where(cat.name.ne("Bob"));
+        assertEquals(2, deleteClause.execute());
+
+        assertEquals(1, cats.size());
+        assertEquals("Bob", cats.iterator().next().getName());
+    }
+
 }
@@ -14,7 +14,14 @@
 package com.mysema.query.collections;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -27,4 +34,43 @@ public class ColQueryFunctionsTest {
         assertNull(ColQueryFunctions.coalesce(null,null));
     }
 
+    @Test
+    public void Like(){
+        assertTrue(ColQueryFunctions.like("Kitty", "K%"));
+        assertTrue(ColQueryFunctions.like("Kitty", "_itt_"));
+        assertFalse(ColQueryFunctions.like("Kitty", "B%"));
+        assertEquals("K.*t.", ColQueryFunctions.likeToRegex("K%t_"));
+    }
+
+    @Test
+    public void Get_Field() throws Exception{
+        Field field = Cat.class.getDeclaredField("stringAsSimple");
+        field.setAccessible(true);
+        Cat cat = new Cat("Kitty");
+        cat.setStringAsSimple("simple");
+        assertEquals("simple", ColQueryFunctions.get(cat, field));
+        assertEquals("simple", ColQueryFunctions.get(cat, "stringAsSimple"));
+    }
+
+    @Test
+    public void Date_Fields(){
+        Calendar cal = Calendar.getInstance();
+        cal.set(2011, Calendar.MARCH, 15, 10, 20, 30);
+        assertEquals(2011, ColQueryFunctions.getYear(cal.getTime()));
+        assertEquals(3, ColQueryFunctions.getMonth(cal.getTime()));
+        assertEquals(201103, ColQueryFunctions.getYearMonth(cal.getTime()));
+        assertEquals(15, ColQueryFunctions.getDayOfMonth(cal.getTime()));
+        assertEquals(10, ColQueryFunctions.getHour(cal.getTime()));
+    }
+
+    @Test
+    public void Like_In_Query(){
+        QCat cat = QCat.cat;
+        List<Cat> cats = Arrays.asList(new Cat("Kitty"), new Cat("Bob"), new Cat("Kate"));
+        assertEquals(Arrays.asList("Kitty", "Kate"), 
+            MiniApi.from(cat, cats).where(cat.name.like("K%")).list(cat.name));
+        assertEquals(Arrays.asList("Bob"), 
+            MiniApi.from(cat, cats).where(cat.name.matches("B.b")).list(cat.name));
+    }
+
 }
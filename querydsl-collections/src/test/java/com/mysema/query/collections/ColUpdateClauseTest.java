@@ -35,4 +35,22 @@ public class ColUpdateClauseTest {
         assertEquals("Bobby", cats.get(1).getName());
     }
     
+    @Test
+    public void Execute_Multiple_Properties() {
+        QCat cat = QCat.cat;
+        List<Cat> cats = Arrays.asList(new Cat("Ann", 1), new Cat("Bob", 2), new Cat("John", 3), new Cat("Carl", 4));
+
+        ColUpdateClause<Cat> updateClause = new ColUpdateClause<Cat>(cat, cats);
+        updateClause.where(cat.id.gt(2));
+        updateClause.set(cat.name, "Old");
+        updateClause.set(cat.breed, 5);
+        assertEquals(2, updateClause.execute());
+
+        assertEquals("Bob", cats.get(1).getName());
+        assertEquals(0, cats.get(1).getBreed());
+        assertEquals("Old", cats.get(2).getName());
+        assertEquals(5, cats.get(2).getBreed());
+        assertEquals("Old", cats.get(3).getName());
+    }
+    
 }
@@ -71,4 +71,28 @@ public class OrderTest extends AbstractQueryTest {
         assertEquals(Arrays.asList(cats.get(1), cats.get(0)), query().from(cat, cats).orderBy(cat.name.desc()).list(cat));
 
     }
+    
+    @Test
+    public void With_Limit() {
+        assertEquals(Arrays.asList("Alex","Bob"), query().from(cat, cats).orderBy(cat.name.asc()).limit(2).list(cat.name));
+        assertEquals(Arrays.asList("Bob","Francis"), query().from(cat, cats).orderBy(cat.name.asc()).offset(1).limit(2).list(cat.name));
+        assertEquals(Arrays.asList("Kitty"), query().from(cat, cats).orderBy(cat.name.desc()).limit(1).list(cat.name));
+        assertEquals(Arrays.asList("Francis","Kitty"), query().from(cat, cats).orderBy(cat.name.asc()).offset(2).list(cat.name));
+    }
+    
+    @Test
+    public void Numeric_Key_With_Limit() {
+        List<Cat> cats = Arrays.asList(new Cat("a", 3), new Cat("b", 1), new Cat("c", 4), new Cat("d", 2));
+        assertEquals(Arrays.asList("b","d"), query().from(cat, cats).orderBy(cat.id.asc()).limit(2).list(cat.name));
+        assertEquals(Arrays.asList("c","a","d","b"), query().from(cat, cats).orderBy(cat.id.desc()).list(cat.name));
+    }
+    
+    @Test
+    public void Multiple_Sources_With_Limit() {
+        List<Object[]> rows = query().from(cat, cats).from(otherCat, cats)
+            .orderBy(cat.name.asc(), otherCat.name.desc()).limit(2).list(cat.name, otherCat.name);
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[]{"Alex", "Kitty"}, rows.get(0));
+        assertArrayEquals(new Object[]{"Alex", "Francis"}, rows.get(1));
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mysema.query.types.path.NumberPath;
+
+public class ParallelQueryTest {
+    
+    private final NumberPath<Integer> var = new NumberPath<Integer>(Integer.class, "var");
+    
+    private final List<Integer> ints = new ArrayList<Integer>();
+    
+    private ExecutorService executor;
+    
+    private QueryEngine queryEngine;
+    
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 1000; i++) {
+            ints.add(i);
+        }
+        executor = Executors.newFixedThreadPool(4);
+        queryEngine = new DefaultQueryEngine(
+                new DefaultEvaluatorFactory(ColQueryTemplates.DEFAULT), executor, 100);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private ColQuery query() {
+        return new ColQueryImpl(queryEngine);
+    }
+    
+    @Test
+    public void List() {
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i += 2) {
+            expected.add(i);
+        }
+        assertEquals(expected, query().from(var, ints).where(var.mod(2).eq(0)).list(var));
+    }
+    
+    @Test
+    public void List_Projection() {
+        List<Integer> result = query().from(var, ints).where(var.lt(500)).list(var.add(1));
+        assertEquals(500, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), result.get(i));
+        }
+    }
+    
+    @Test
+    public void Count() {
+        assertEquals(500, query().from(var, ints).where(var.mod(2).eq(1)).count());
+        assertEquals(1000, query().from(var, ints).count());
+    }
+    
+    @Test
+    public void Ordered() {
+        List<Integer> result = query().from(var, ints).where(var.goe(990)).orderBy(var.desc()).list(var);
+        assertEquals(10, result.size());
+        assertEquals(Integer.valueOf(999), result.get(0));
+    }
+    
+    @Test
+    public void Below_Threshold() {
+        assertEquals(3, query().from(var, ints.subList(0, 50)).where(var.lt(3)).count());
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mysema.codegen.Evaluator;
+
+public class RowSorterTest {
+    
+    private static class Identity<T> implements Evaluator<T> {
+        
+        private final Class<T> type;
+        
+        Identity(Class<T> type) {
+            this.type = type;
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public T evaluate(Object... args) {
+            return args.length == 1 ? (T)args[0] : (T)args;
+        }
+        
+        @Override
+        public Class<? extends T> getType() {
+            return type;
+        }        
+    }
+    
+    private final List<Integer> ints = Arrays.asList(5, 3, null, 9, 1, 7);
+    
+    @Test
+    public void Long_Keys() {
+        RowSorter sorter = new RowSorter(new Identity<Integer>(Integer.class), Integer.class, new boolean[]{true});
+        assertEquals(Arrays.asList(null, 1, 3, 5, 7, 9), sorter.sort(ints));
+        assertEquals(Arrays.asList(null, 1, 3), sorter.sort(ints, 3l));
+        
+        sorter = new RowSorter(new Identity<Integer>(Integer.class), Integer.class, new boolean[]{false});
+        assertEquals(Arrays.asList(9, 7, 5, 3, 1, null), sorter.sort(ints));
+        assertEquals(Arrays.asList(9, 7), sorter.sort(ints, 2l));
+    }
+    
+    @Test
+    public void Double_Keys() {
+        List<Double> doubles = Arrays.asList(2.5, -1.0, 0.5, 10.0);
+        RowSorter sorter = new RowSorter(new Identity<Double>(Double.class), Double.class, new boolean[]{true});
+        assertEquals(Arrays.asList(-1.0, 0.5, 2.5, 10.0), sorter.sort(doubles));
+        assertEquals(Arrays.asList(-1.0), sorter.sort(doubles, 1l));
+    }
+    
+    @Test
+    public void Object_Keys() {
+        List<String> strings = Arrays.asList("c", "a", "d", "b");
+        RowSorter sorter = new RowSorter(new Identity<String>(String.class), String.class, new boolean[]{true});
+        assertEquals(Arrays.asList("a", "b", "c", "d"), sorter.sort(strings));
+        assertEquals(Arrays.asList("a", "b"), sorter.sort(strings, 2l));
+        assertEquals(0, sorter.sort(strings, 0l).size());
+    }
+    
+    @Test
+    public void Array_Keys() {
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{"a", 2}, new Object[]{"b", 1}, new Object[]{"a", 1}, new Object[]{"b", 2});
+        RowSorter sorter = new RowSorter(new Identity<Object[]>(Object[].class), Object[].class, new boolean[]{true, false});
+        List<Object[]> sorted = sorter.sort(rows);
+        assertEquals(Arrays.asList(rows.get(0), rows.get(2), rows.get(3), rows.get(1)), sorted);
+        assertEquals(Arrays.asList(rows.get(0), rows.get(2), rows.get(3)), sorter.sort(rows, 3l));
+    }
+    
+    @Test
+    public void Stable() {
+        List<String> strings = Arrays.asList("b1", "a1", "b2", "a2", "b3");
+        Evaluator<Character> firstChar = new Evaluator<Character>() {
+            @Override
+            public Character evaluate(Object... args) {
+                return args[0].toString().charAt(0);
+            }
+            @Override
+            public Class<? extends Character> getType() {
+                return Character.class;
+            }
+        };
+        RowSorter sorter = new RowSorter(firstChar, Character.class, new boolean[]{true});
+        assertEquals(Arrays.asList("a1", "a2", "b1", "b2", "b3"), sorter.sort(strings));
+        assertEquals(Arrays.asList("a1", "a2", "b1"), sorter.sort(strings, 3l));
+    }
+
+}
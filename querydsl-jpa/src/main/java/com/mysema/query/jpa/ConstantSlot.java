@@ -0,0 +1,94 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ConstantSlot holds the value of a single constant occurrence in a JPQL query serialized
+ * with a stable parameter layout. Slots use identity equality, so that equal values in
+ * different positions are bound to different parameters.
+ *
+ * <p>Collection values are padded to the next power of two size by repeating the last element,
+ * so that providers expand list parameters to a small set of distinct SQL strings.</p>
+ *
+ * @author tiwe
+ *
+ */
+public final class ConstantSlot {
+
+    /**
+     * Get the bound value for the given constant or slot
+     *
+     * @param constant
+     * @return
+     */
+    public static Object getValue(Object constant) {
+        return constant instanceof ConstantSlot ? ((ConstantSlot)constant).value : constant;
+    }
+
+    private static Object toBucket(Object constant) {
+        if (!(constant instanceof Collection<?>)) {
+            return constant;
+        }
+        Collection<?> values = (Collection<?>)constant;
+        int size = values.size();
+        int bucket = Integer.highestOneBit(size);
+        if (size == 0 || bucket == size) {
+            return values;
+        }
+        List<Object> rv = new ArrayList<Object>(bucket << 1);
+        rv.addAll(values);
+        Object last = rv.get(size - 1);
+        while (rv.size() < bucket << 1) {
+            rv.add(last);
+        }
+        return rv;
+    }
+
+    private final Object constant;
+
+    private final Object value;
+
+    public ConstantSlot(Object constant) {
+        this.constant = constant;
+        this.value = toBucket(constant);
+    }
+
+    /**
+     * Get the constant of the query
+     *
+     * @return
+     */
+    public Object getConstant() {
+        return constant;
+    }
+
+    /**
+     * Get the value to be bound
+     *
+     * @return
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+
+}
@@ -38,12 +38,21 @@ public class HQLTemplates extends JPQLTemplates {
 
     public static final HQLTemplates DEFAULT = new HQLTemplates();
 
+    /**
+     * HQLTemplates instance with a stable parameter layout
+     */
+    public static final HQLTemplates STABLE = new HQLTemplates(DEFAULT_ESCAPE, true);
+
     public HQLTemplates() {
         this(DEFAULT_ESCAPE);
     }
     
     public HQLTemplates(char escape) {
-        super(escape);
+        this(escape, false);
+    }
+
+    public HQLTemplates(char escape, boolean stableParameterLayout) {
+        super(escape, stableParameterLayout);
         //CHECKSTYLE:OFF
         add(CAST, "cast({0} as {1s})");
      // TODO : remove this when Hibernate supports type(alias)
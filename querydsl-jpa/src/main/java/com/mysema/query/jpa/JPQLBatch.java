@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.ParamExpression;
+
+/**
+ * JPQLBatch collects the batch items of an update or delete clause and executes them.
+ * Items with the same query string share the query instance.
+ *
+ * <p>With templates that have a stable parameter layout the items are serialized once per
+ * shape, otherwise each item is serialized separately. Pending items and collected counts
+ * are discarded when the execution of an item fails.</p>
+ *
+ * @author tiwe
+ *
+ * @param <Q> query type
+ */
+public abstract class JPQLBatch<Q> {
+
+    private static final int MAX_SHAPES = 16;
+
+    private final JPQLQueryCache queryCache = new JPQLQueryCache(MAX_SHAPES);
+
+    private final JPQLTemplates templates;
+
+    private final boolean update;
+
+    private final List<QueryMetadata> items = new ArrayList<QueryMetadata>();
+
+    private final List<Integer> counts = new ArrayList<Integer>();
+
+    private int flushSize = 0;
+
+    /**
+     * Create a new JPQLBatch instance
+     *
+     * @param templates templates for serialization
+     * @param update true for update clauses, false for delete clauses
+     */
+    protected JPQLBatch(JPQLTemplates templates, boolean update) {
+        this.templates = templates;
+        this.update = update;
+    }
+
+    /**
+     * Add the given clause metadata as a batch item
+     *
+     * @param metadata
+     */
+    public void add(QueryMetadata metadata) {
+        items.add(metadata);
+        if (flushSize > 0 && items.size() >= flushSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Set the amount of batch items after which the pending items are executed
+     *
+     * @param flushSize amount of items or 0 to execute the items only on execution
+     */
+    public void setFlushSize(int flushSize) {
+        this.flushSize = flushSize;
+    }
+
+    /**
+     * Get whether no items are pending and no counts have been collected
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return items.isEmpty() && counts.isEmpty();
+    }
+
+    /**
+     * Execute the pending items and get the amount of affected rows per item
+     *
+     * @return
+     */
+    public int[] execute() {
+        try {
+            flush();
+            int[] rv = new int[counts.size()];
+            for (int i = 0; i < rv.length; i++) {
+                rv[i] = counts.get(i);
+            }
+            return rv;
+        } finally {
+            counts.clear();
+        }
+    }
+
+    private void flush() {
+        boolean executed = false;
+        try {
+            Map<String, Q> queries = new HashMap<String, Q>();
+            for (QueryMetadata item : items) {
+                Map<Object,String> constants = new HashMap<Object,String>();
+                String queryString = update
+                        ? queryCache.serializeForUpdate(templates, item, constants)
+                        : queryCache.serializeForDelete(templates, item, constants);
+                Q query = queries.get(queryString);
+                if (query == null) {
+                    query = createQuery(queryString);
+                    queries.put(queryString, query);
+                }
+                setConstants(query, constants, item.getParams());
+                counts.add(executeUpdate(query));
+            }
+            executed = true;
+        } finally {
+            items.clear();
+            if (!executed) {
+                counts.clear();
+            }
+        }
+    }
+
+    protected abstract Q createQuery(String queryString);
+
+    protected abstract void setConstants(Q query, Map<Object,String> constants,
+            Map<ParamExpression<?>, Object> params);
+
+    protected abstract int executeUpdate(Q query);
+
+}
@@ -13,8 +13,11 @@
  */
 package com.mysema.query.jpa;
 
+import java.util.HashMap;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.support.ProjectableQuery;
 import com.mysema.query.types.CollectionExpression;
@@ -33,6 +36,9 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
 
     private Map<Object,String> constants;
 
+    @Nullable
+    private JPQLQueryCache queryCache;
+
     private final JPQLQueryMixin<Q> queryMixin;
 
     private final JPQLTemplates templates;
@@ -41,6 +47,11 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
         return templates;
     }
 
+    @Nullable
+    protected JPQLQueryCache getQueryCache() {
+        return queryCache;
+    }
+
     protected JPQLQueryMixin<Q> getQueryMixin() {
         return queryMixin;
     }
@@ -54,11 +65,19 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
     }
 
     protected String buildQueryString(boolean forCountRow) {
-        if (queryMixin.getMetadata().getJoins().isEmpty()) {
+        return buildQueryString(queryMixin.getMetadata(), forCountRow);
+    }
+
+    protected String buildQueryString(QueryMetadata metadata, boolean forCountRow) {
+        if (metadata.getJoins().isEmpty()) {
             throw new IllegalArgumentException("No joins given");
         }
+        if (queryCache != null) {
+            constants = new HashMap<Object,String>();
+            return queryCache.serialize(templates, metadata, forCountRow, constants);
+        }
         JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serialize(queryMixin.getMetadata(), forCountRow, null);
+        serializer.serialize(metadata, forCountRow, null);
         constants = serializer.getConstantToLabel();
         return serializer.toString();
     }
@@ -217,6 +236,15 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
         return queryMixin.with(conditions);
     }
 
+    /**
+     * Set the cache for serialized query strings
+     *
+     * @param queryCache
+     */
+    public void setQueryCache(@Nullable JPQLQueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
     protected void setConstants(Map<Object, String> constants) {
         this.constants = constants;
     }
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.mysema.query.JoinExpression;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.Constant;
+import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.SubQueryExpression;
+import com.mysema.query.types.TemplateExpression;
+import com.mysema.query.types.Visitor;
+
+/**
+ * JPQLQueryCache caches serialized JPQL query strings by query shape. Two queries have the
+ * same shape if they differ only in the values of their constants, so queries of a known
+ * shape skip serialization and only rebind the constants. Update and delete clauses are
+ * cached in the same way.
+ *
+ * <p>The cache is used only with templates that have a stable parameter layout, such as
+ * {@link HQLTemplates#STABLE} and {@link JPQLTemplates#STABLE}. Shapes
+ * whose constants are not bound one-to-one in expression order, e.g. because the templates
+ * convert them into like patterns, are serialized each time.</p>
+ *
+ * @author tiwe
+ *
+ */
+public final class JPQLQueryCache {
+
+    private static final int DEFAULT_MAX_SIZE = 512;
+
+    private static final Object CONSTANT = new Object();
+
+    private enum Type { SELECT, COUNT, DELETE, UPDATE }
+
+    private static final class Entry {
+
+        @Nullable
+        private final String queryString;
+
+        @Nullable
+        private final Object[] sources;
+
+        Entry(@Nullable String queryString, @Nullable Object[] sources) {
+            this.queryString = queryString;
+            this.sources = sources;
+        }
+
+    }
+
+    private static final class Shape {
+
+        private final List<Object> key = new ArrayList<Object>();
+
+        private final List<Object> constants = new ArrayList<Object>();
+
+    }
+
+    private static final Visitor<Void, Shape> shapeVisitor = new Visitor<Void, Shape>() {
+
+        @Override
+        public Void visit(Constant<?> expr, Shape context) {
+            context.key.add(expr.getType());
+            context.key.add(expr.getConstant().getClass());
+            context.constants.add(expr.getConstant());
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Shape context) {
+            context.key.add(expr.getClass());
+            context.key.add(expr.getType());
+            addAll(expr.getArgs(), context);
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Shape context) {
+            context.key.add(expr.getOperator());
+            context.key.add(expr.getType());
+            addAll(expr.getArgs(), context);
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Shape context) {
+            context.key.add(expr);
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Shape context) {
+            // path equality ignores the Java type and the entity name
+            context.key.add(expr);
+            context.key.add(expr.getType());
+            if (expr.getMetadata().isRoot() && expr instanceof EntityPath) {
+                context.key.add(JPQLSerializer.getEntityName((EntityPath<?>)expr));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Shape context) {
+            context.key.add(SubQueryExpression.class);
+            addMetadata(expr.getMetadata(), false, context);
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Shape context) {
+            context.key.add(expr.getTemplate());
+            context.key.add(expr.getType());
+            addAll(expr.getArgs(), context);
+            return null;
+        }
+
+    };
+
+    private static void add(@Nullable Expression<?> expr, Shape shape) {
+        if (expr != null) {
+            expr.accept(shapeVisitor, shape);
+        } else {
+            shape.key.add(null);
+        }
+    }
+
+    private static void addAll(List<? extends Expression<?>> exprs, Shape shape) {
+        shape.key.add(exprs.size());
+        for (Expression<?> expr : exprs) {
+            add(expr, shape);
+        }
+    }
+
+    /**
+     * Add the given metadata in the order of JPQLSerializer
+     */
+    private static void addMetadata(QueryMetadata metadata, boolean forCountRow, Shape shape) {
+        List<? extends Expression<?>> select = metadata.getProjection();
+        shape.key.add(forCountRow);
+        shape.key.add(metadata.isDistinct());
+        if (!forCountRow || (!select.isEmpty() && !(select.get(0) instanceof FactoryExpression))) {
+            addAll(select, shape);
+        } else {
+            shape.key.add(select.isEmpty());
+        }
+        shape.key.add(metadata.getJoins().size());
+        for (JoinExpression join : metadata.getJoins()) {
+            shape.key.add(join.getType());
+            shape.key.add(join.getFlags());
+            add(join.getTarget(), shape);
+            add(join.getCondition(), shape);
+        }
+        add(metadata.getWhere(), shape);
+        addAll(metadata.getGroupBy(), shape);
+        add(metadata.getHaving(), shape);
+        if (!forCountRow) {
+            shape.key.add(metadata.getOrderBy().size());
+            for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+                shape.key.add(order.getOrder());
+                add(order.getTarget(), shape);
+            }
+        }
+    }
+
+    private final Map<List<Object>, Entry> entries;
+
+    public JPQLQueryCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create a new JPQLQueryCache instance
+     *
+     * @param maxSize maximum amount of cached shapes
+     */
+    public JPQLQueryCache(final int maxSize) {
+        this.entries = new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Serialize the given query metadata, reusing the query string of an earlier query with
+     * the same shape if possible
+     *
+     * @param templates
+     * @param metadata
+     * @param forCountRow
+     * @param constants map to be populated with the constant to label mappings
+     * @return the query string
+     */
+    public String serialize(JPQLTemplates templates, QueryMetadata metadata, boolean forCountRow,
+            Map<Object,String> constants) {
+        return serialize(templates, metadata, forCountRow ? Type.COUNT : Type.SELECT, constants);
+    }
+
+    /**
+     * Serialize the given delete clause metadata, reusing the query string of an earlier
+     * clause with the same shape if possible
+     *
+     * @param templates
+     * @param metadata
+     * @param constants map to be populated with the constant to label mappings
+     * @return the query string
+     */
+    public String serializeForDelete(JPQLTemplates templates, QueryMetadata metadata,
+            Map<Object,String> constants) {
+        return serialize(templates, metadata, Type.DELETE, constants);
+    }
+
+    /**
+     * Serialize the given update clause metadata, reusing the query string of an earlier
+     * clause with the same shape if possible
+     *
+     * @param templates
+     * @param metadata
+     * @param constants map to be populated with the constant to label mappings
+     * @return the query string
+     */
+    public String serializeForUpdate(JPQLTemplates templates, QueryMetadata metadata,
+            Map<Object,String> constants) {
+        return serialize(templates, metadata, Type.UPDATE, constants);
+    }
+
+    private String serialize(JPQLTemplates templates, QueryMetadata metadata, Type type,
+            Map<Object,String> constants) {
+        if (!templates.isStableParameterLayout()) {
+            return serialize(new JPQLSerializer(templates), metadata, type, constants);
+        }
+        Shape shape = new Shape();
+        shape.key.add(templates);
+        shape.key.add(type);
+        addMetadata(metadata, type == Type.COUNT, shape);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(shape.key);
+        }
+        if (entry != null && entry.sources != null) {
+            int constant = 0;
+            for (int i = 0; i < entry.sources.length; i++) {
+                Object source = entry.sources[i];
+                if (source == CONSTANT) {
+                    source = new ConstantSlot(shape.constants.get(constant++));
+                }
+                constants.put(source, String.valueOf(i + 1));
+            }
+            return entry.queryString;
+        }
+
+        JPQLSerializer serializer = new JPQLSerializer(templates);
+        String queryString = serialize(serializer, metadata, type, constants);
+        if (entry == null) {
+            Object[] sources = getSources(serializer.getConstantToLabel(), shape.constants);
+            entry = sources != null ? new Entry(queryString, sources) : new Entry(null, null);
+            synchronized (entries) {
+                entries.put(shape.key, entry);
+            }
+        }
+        return queryString;
+    }
+
+    private String serialize(JPQLSerializer serializer, QueryMetadata metadata, Type type,
+            Map<Object,String> constants) {
+        if (type == Type.DELETE) {
+            serializer.serializeForDelete(metadata);
+        } else if (type == Type.UPDATE) {
+            serializer.serializeForUpdate(metadata);
+        } else {
+            serializer.serialize(metadata, type == Type.COUNT, null);
+        }
+        constants.putAll(serializer.getConstantToLabel());
+        return serializer.toString();
+    }
+
+    /**
+     * Get the label sources of the serialized query, or null if the constants of the query are
+     * not bound as such in expression order
+     */
+    @Nullable
+    private Object[] getSources(Map<Object,String> labels, List<Object> constants) {
+        Object[] sources = new Object[labels.size()];
+        for (Map.Entry<Object,String> entry : labels.entrySet()) {
+            sources[Integer.parseInt(entry.getValue()) - 1] = entry.getKey();
+        }
+        int constant = 0;
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] instanceof ConstantSlot) {
+                if (constant >= constants.size()
+                 || ((ConstantSlot)sources[i]).getConstant() != constants.get(constant++)) {
+                    return null;
+                }
+                sources[i] = CONSTANT;
+            }
+        }
+        return constant == constants.size() ? sources : null;
+    }
+
+    /**
+     * Get the amount of cached shapes
+     *
+     * @return
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Remove all cached shapes
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+}
@@ -58,6 +58,8 @@ public class JPQLSerializer extends SerializerBase<JPQLSerializer> {
 
     private static final String HAVING = "\nhaving ";
 
+    private static final String INSERT = "insert into ";
+
     private static final String ORDER_BY = "\norder by ";
 
     private static final String SELECT = "select ";
@@ -103,22 +105,34 @@ public class JPQLSerializer extends SerializerBase<JPQLSerializer> {
         if (je.getTarget() instanceof EntityPath<?>) {
             EntityPath<?> pe = (EntityPath<?>) je.getTarget();
             if (pe.getMetadata().getParent() == null) {
-                Entity entityAnnotation = pe.getAnnotatedElement().getAnnotation(Entity.class);
-                if (entityAnnotation != null && entityAnnotation.name().length() > 0) {
-                    append(entityAnnotation.name());
-                } else if (pe.getType().getPackage() != null) {
-                    String pn = pe.getType().getPackage().getName();
-                    String typeName = pe.getType().getName().substring(pn.length() + 1);
-                    append(typeName);
-                } else {
-                    append(pe.getType().getName());
-                }
-                append(" ");
+                append(getEntityName(pe)).append(" ");
             }
         }
         handle(je.getTarget());
     }
 
+    static String getEntityName(EntityPath<?> pe) {
+        Entity entityAnnotation = pe.getAnnotatedElement().getAnnotation(Entity.class);
+        if (entityAnnotation != null && entityAnnotation.name().length() > 0) {
+            return entityAnnotation.name();
+        } else if (pe.getType().getPackage() != null) {
+            String pn = pe.getType().getPackage().getName();
+            return pe.getType().getName().substring(pn.length() + 1);
+        } else {
+            return pe.getType().getName();
+        }
+    }
+
+    private void handleInsertColumn(Path<?> path) {
+        // insert columns are given as property paths without the entity alias
+        Path<?> parent = path.getMetadata().getParent();
+        if (parent != null && !parent.getMetadata().isRoot()) {
+            handleInsertColumn(parent);
+            append(".");
+        }
+        append(path.getMetadata().getExpression().toString());
+    }
+
 
 
     public void serialize(QueryMetadata metadata, boolean forCountRow, @Nullable String projection) {
@@ -206,6 +220,20 @@ public class JPQLSerializer extends SerializerBase<JPQLSerializer> {
         }
     }
 
+    public void serializeForInsert(QueryMetadata md, List<Path<?>> columns, SubQueryExpression<?> subQuery) {
+        append(INSERT);
+        append(getEntityName((EntityPath<?>) md.getJoins().get(0).getTarget()));
+        append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                append(COMMA);
+            }
+            handleInsertColumn(columns.get(i));
+        }
+        append(")\n");
+        serialize(subQuery.getMetadata(), false, null);
+    }
+
     public void serializeForUpdate(QueryMetadata md) {
         append(UPDATE);
         handleJoinTarget(md.getJoins().get(0));
@@ -243,7 +271,11 @@ public class JPQLSerializer extends SerializerBase<JPQLSerializer> {
              append("(");
         }
         append("?");
-        if (!getConstantToLabel().containsKey(expr.getConstant())) {
+        if (templates.isStableParameterLayout()) {
+            String constLabel = String.valueOf(getConstantToLabel().size()+1);
+            getConstantToLabel().put(new ConstantSlot(expr.getConstant()), constLabel);
+            append(constLabel);
+        } else if (!getConstantToLabel().containsKey(expr.getConstant())) {
             String constLabel = String.valueOf(getConstantToLabel().size()+1);
             getConstantToLabel().put(expr.getConstant(), constLabel);
             append(constLabel);
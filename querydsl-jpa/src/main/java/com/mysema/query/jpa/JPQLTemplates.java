@@ -41,13 +41,25 @@ public class JPQLTemplates extends Templates {
     public static final Operator<Boolean> MEMBER_OF = new OperatorImpl<Boolean>("MEMBER_OF",Object.class, Object.class);
 
     public static final JPQLTemplates DEFAULT = new JPQLTemplates();
+
+    /**
+     * JPQLTemplates instance with a stable parameter layout
+     */
+    public static final JPQLTemplates STABLE = new JPQLTemplates(DEFAULT_ESCAPE, true);
+
+    private final boolean stableParameterLayout;
     
     protected JPQLTemplates() {
         this(DEFAULT_ESCAPE);
     }
     
     protected JPQLTemplates(char escape) {
+        this(escape, false);
+    }
+
+    protected JPQLTemplates(char escape, boolean stableParameterLayout) {
         super(escape);
+        this.stableParameterLayout = stableParameterLayout;
         //CHECKSTYLE:OFF
         // boolean
         add(Ops.AND, "{0} and {1}", 36);
@@ -148,4 +160,15 @@ public class JPQLTemplates extends Templates {
         return false;
     }
 
+    /**
+     * Get whether each constant occurrence is bound to its own positional parameter
+     * and collection constants are padded to power of two sizes, so that the query
+     * string depends only on the query structure
+     *
+     * @return
+     */
+    public boolean isStableParameterLayout() {
+        return stableParameterLayout;
+    }
+
 }
@@ -13,6 +13,7 @@
  */
 package com.mysema.query.jpa.hibernate;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +30,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mysema.commons.lang.CloseableIterator;
-import com.mysema.commons.lang.IteratorAdapter;
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.QueryException;
@@ -64,6 +64,8 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
 
     protected int fetchSize = 0;
 
+    protected int clearInterval = 0;
+
     protected final Map<Path<?>,LockMode> lockModes = new HashMap<Path<?>,LockMode>();
     
     @Nullable
@@ -196,29 +198,33 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
      * contains multiple results pre row, the results are returned in
      * an instance of <tt>Object[]</tt>.<br>
      * <br>
-     * Entities returned as results are initialized on demand. The first
-     * SQL query returns identifiers only.<br>
+     * The results are read from a forward-only scroll, so entities are loaded
+     * together with the rows. The iterator should be closed after usage.<br>
      */
-    @SuppressWarnings("unchecked")
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
+        boolean asArray = FactoryExpressionUtils.wrap(Arrays.asList(args)) == null;
         Query query = createQuery(args);
         reset();
-        return new IteratorAdapter<Object[]>(query.iterate());
+        return scroll(query, asArray);
     }
 
     /**
-     * Return the query results as an <tt>Iterator</tt>. If the query
-     * contains multiple results pre row, the results are returned in
-     * an instance of <tt>Object[]</tt>.<br>
+     * Return the query results as an <tt>Iterator</tt>.<br>
      * <br>
-     * Entities returned as results are initialized on demand. The first
-     * SQL query returns identifiers only.<br>
+     * The results are read from a forward-only scroll, so entities are loaded
+     * together with the rows. The iterator should be closed after usage.<br>
      */
-    @SuppressWarnings("unchecked")
     public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
         Query query = createQuery(projection);
         reset();
-        return new IteratorAdapter<RT>(query.iterate());
+        return scroll(query, false);
+    }
+
+    private <T> CloseableIterator<T> scroll(Query query, boolean asArray) {
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        // only stateful sessions hold loaded entities
+        DefaultSessionHolder clearable = session instanceof DefaultSessionHolder ? (DefaultSessionHolder)session : null;
+        return new ScrollableResultsIterator<T>(results, asArray, clearable, clearInterval);
     }
 
     @SuppressWarnings("unchecked")
@@ -341,6 +347,19 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
         return (Q)this;
     }
 
+    /**
+     * Clear the session each time the given amount of rows has been read by
+     * {@link #iterate(Expression)}, so that long iterations don't accumulate loaded
+     * entities in the session. Rows returned before a clear are detached. Has no effect
+     * for queries on a StatelessSession.
+     * @param clearInterval amount of rows between clears, 0 to disable
+     */
+    @SuppressWarnings("unchecked")
+    public Q setClearInterval(int clearInterval) {
+        this.clearInterval = clearInterval;
+        return (Q)this;
+    }
+
     /**
      * Set a fetch size for the underlying JDBC query.
      * @param fetchSize the fetch size
@@ -43,4 +43,11 @@ public class DefaultSessionHolder implements SessionHolder{
         return session.createSQLQuery(queryString);
     }
 
+    /**
+     * Detach all loaded entities from the session
+     */
+    public void clear() {
+        session.clear();
+    }
+
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.hibernate;
+
+import java.util.Map;
+
+import org.hibernate.Query;
+
+import com.mysema.query.jpa.JPQLBatch;
+import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.types.ParamExpression;
+
+/**
+ * HibernateBatch executes the batch items of Hibernate update and delete clauses
+ *
+ * @author tiwe
+ *
+ */
+class HibernateBatch extends JPQLBatch<Query> {
+
+    private final SessionHolder session;
+
+    HibernateBatch(SessionHolder session, JPQLTemplates templates, boolean update) {
+        super(templates, update);
+        this.session = session;
+    }
+
+    @Override
+    protected Query createQuery(String queryString) {
+        return session.createQuery(queryString);
+    }
+
+    @Override
+    protected void setConstants(Query query, Map<Object, String> constants,
+            Map<ParamExpression<?>, Object> params) {
+        HibernateUtil.setConstants(query, constants, params);
+    }
+
+    @Override
+    protected int executeUpdate(Query query) {
+        return query.executeUpdate();
+    }
+
+}
@@ -37,7 +37,11 @@ import com.mysema.query.types.Predicate;
  */
 public class HibernateDeleteClause implements DeleteClause<HibernateDeleteClause>{
 
-    private final QueryMetadata md = new DefaultQueryMetadata();
+    private QueryMetadata md = new DefaultQueryMetadata();
+
+    private final EntityPath<?> entity;
+
+    private final HibernateBatch batch;
 
     private final SessionHolder session;
 
@@ -58,18 +62,61 @@ public class HibernateDeleteClause implements DeleteClause<HibernateDeleteClause
     public HibernateDeleteClause(SessionHolder session, EntityPath<?> entity, JPQLTemplates templates) {
         this.session = session;
         this.templates = templates;
+        this.entity = entity;
+        this.batch = new HibernateBatch(session, templates, false);
         md.addJoin(JoinType.DEFAULT, entity);
     }
 
+    /**
+     * Add the current state of bindings as a batch item
+     *
+     * @return
+     */
+    public HibernateDeleteClause addBatch() {
+        QueryMetadata item = md;
+        md = new DefaultQueryMetadata();
+        md.addJoin(JoinType.DEFAULT, entity);
+        batch.add(item);
+        return this;
+    }
+
+    /**
+     * Set the amount of batch items after which the pending items are executed
+     *
+     * @param flushSize amount of items or 0 to execute the items only on execution of the clause
+     * @return
+     */
+    public HibernateDeleteClause setFlushSize(int flushSize) {
+        batch.setFlushSize(flushSize);
+        return this;
+    }
+
     @Override
     public long execute() {
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForDelete(md);
-        Map<Object,String> constants = serializer.getConstantToLabel();
+        if (batch.isEmpty()) {
+            JPQLSerializer serializer = new JPQLSerializer(templates);
+            serializer.serializeForDelete(md);
+            Map<Object,String> constants = serializer.getConstantToLabel();
+
+            Query query = session.createQuery(serializer.toString());
+            HibernateUtil.setConstants(query, constants, md.getParams());
+            return query.executeUpdate();
+        } else {
+            long rv = 0;
+            for (int count : executeBatch()) {
+                rv += count;
+            }
+            return rv;
+        }
+    }
 
-        Query query = session.createQuery(serializer.toString());
-        HibernateUtil.setConstants(query, constants, md.getParams());
-        return query.executeUpdate();
+    /**
+     * Execute the batch items and get the amount of affected rows per item
+     *
+     * @return
+     */
+    public int[] executeBatch() {
+        return batch.execute();
     }
     
     @Override
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.hibernate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.dml.InsertClause;
+import com.mysema.query.jpa.HQLTemplates;
+import com.mysema.query.jpa.JPQLSerializer;
+import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.SubQueryExpression;
+
+/**
+ * InsertClause implementation for Hibernate
+ *
+ * <p>Rows are inserted either via an HQL insert ... select statement or by writing
+ * entities through a StatelessSession. Entities are written as they are added; to group
+ * the inserts into JDBC batches, set the <code>hibernate.jdbc.batch_size</code> property
+ * of the session factory.</p>
+ *
+ * @author tiwe
+ *
+ */
+public class HibernateInsertClause implements InsertClause<HibernateInsertClause> {
+
+    private final QueryMetadata metadata = new DefaultQueryMetadata();
+
+    private final EntityPath<?> entity;
+
+    private final List<Path<?>> columns = new ArrayList<Path<?>>();
+
+    @Nullable
+    private SubQueryExpression<?> subQuery;
+
+    private long inserted = 0;
+
+    private final SessionHolder session;
+
+    @Nullable
+    private final StatelessSession statelessSession;
+
+    private final JPQLTemplates templates;
+
+    public HibernateInsertClause(Session session, EntityPath<?> entity) {
+        this(new DefaultSessionHolder(session), entity, HQLTemplates.DEFAULT);
+    }
+
+    public HibernateInsertClause(StatelessSession session, EntityPath<?> entity) {
+        this(session, entity, HQLTemplates.DEFAULT);
+    }
+
+    public HibernateInsertClause(Session session, EntityPath<?> entity, JPQLTemplates templates) {
+        this(new DefaultSessionHolder(session), entity, templates);
+    }
+
+    public HibernateInsertClause(StatelessSession session, EntityPath<?> entity, JPQLTemplates templates) {
+        this(new StatelessSessionHolder(session), session, entity, templates);
+    }
+
+    public HibernateInsertClause(SessionHolder session, EntityPath<?> entity, JPQLTemplates templates) {
+        this(session, null, entity, templates);
+    }
+
+    private HibernateInsertClause(SessionHolder session, @Nullable StatelessSession statelessSession,
+            EntityPath<?> entity, JPQLTemplates templates) {
+        this.session = session;
+        this.statelessSession = statelessSession;
+        this.templates = templates;
+        this.entity = entity;
+        metadata.addJoin(JoinType.DEFAULT, entity);
+    }
+
+    @Override
+    public HibernateInsertClause columns(Path<?>... columns) {
+        this.columns.addAll(Arrays.asList(columns));
+        return this;
+    }
+
+    @Override
+    public HibernateInsertClause select(SubQueryExpression<?> subQuery) {
+        this.subQuery = subQuery;
+        return this;
+    }
+
+    /**
+     * Write the given entities via the StatelessSession
+     *
+     * @param entities
+     * @return
+     */
+    public HibernateInsertClause add(Object... entities) {
+        return addAll(Arrays.asList(entities));
+    }
+
+    /**
+     * Write the given entities via the StatelessSession. If an insert fails, the entities
+     * written before it stay inserted and are included in the result of {@link #execute()}.
+     *
+     * @param entities
+     * @return
+     */
+    public HibernateInsertClause addAll(Iterable<?> entities) {
+        if (statelessSession == null) {
+            throw new IllegalStateException("Entity inserts require a StatelessSession");
+        }
+        List<Object> checked = new ArrayList<Object>();
+        for (Object e : entities) {
+            if (!entity.getType().isInstance(e)) {
+                throw new IllegalArgumentException("Expected instance of " + entity.getType().getName()
+                        + ", got " + e);
+            }
+            checked.add(e);
+        }
+        for (Object e : checked) {
+            statelessSession.insert(e);
+            inserted++;
+        }
+        return this;
+    }
+
+    @Override
+    public long execute() {
+        if (subQuery != null) {
+            JPQLSerializer serializer = new JPQLSerializer(templates);
+            serializer.serializeForInsert(metadata, columns, subQuery);
+            Map<Object, String> constants = serializer.getConstantToLabel();
+
+            Query query = session.createQuery(serializer.toString());
+            HibernateUtil.setConstants(query, constants, subQuery.getMetadata().getParams());
+            return query.executeUpdate();
+        } else {
+            long rv = inserted;
+            inserted = 0;
+            return rv;
+        }
+    }
+
+    @Override
+    public <T> HibernateInsertClause set(Path<T> path, T value) {
+        throw new UnsupportedOperationException("HQL supports only insert ... select statements");
+    }
+
+    @Override
+    public <T> HibernateInsertClause set(Path<T> path, Expression<? extends T> expression) {
+        throw new UnsupportedOperationException("HQL supports only insert ... select statements");
+    }
+
+    @Override
+    public <T> HibernateInsertClause setNull(Path<T> path) {
+        throw new UnsupportedOperationException("HQL supports only insert ... select statements");
+    }
+
+    @Override
+    public HibernateInsertClause values(Object... v) {
+        throw new UnsupportedOperationException("HQL supports only insert ... select statements");
+    }
+
+    @Override
+    public String toString() {
+        if (subQuery != null) {
+            JPQLSerializer serializer = new JPQLSerializer(templates);
+            serializer.serializeForInsert(metadata, columns, subQuery);
+            return serializer.toString();
+        } else {
+            return "insert into " + entity.getType().getSimpleName();
+        }
+    }
+
+}
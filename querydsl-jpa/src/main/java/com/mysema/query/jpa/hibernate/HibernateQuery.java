@@ -108,10 +108,12 @@ public final class HibernateQuery extends AbstractHibernateQuery<HibernateQuery>
         q.cacheable = cacheable;
         q.cacheRegion = cacheRegion;
         q.fetchSize = fetchSize;
+        q.clearInterval = clearInterval;
         q.flushMode = flushMode;
         q.lockModes.putAll(lockModes);
         q.readOnly = readOnly;
         q.timeout = timeout;
+        q.setQueryCache(getQueryCache());
         return q;
     }
 
@@ -13,12 +13,14 @@
  */
 package com.mysema.query.jpa.hibernate;
 
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 
 import org.hibernate.Session;
 
 import com.mysema.query.QueryFactory;
 import com.mysema.query.jpa.HQLTemplates;
+import com.mysema.query.jpa.JPQLQueryCache;
 import com.mysema.query.jpa.JPQLTemplates;
 import com.mysema.query.types.EntityPath;
 
@@ -32,6 +34,9 @@ public class HibernateQueryFactory implements QueryFactory<HibernateQuery, Hiber
 
     private final JPQLTemplates templates;
 
+    @Nullable
+    private final JPQLQueryCache queryCache;
+
     private final Provider<Session> session;
 
     public HibernateQueryFactory(Provider<Session> session) {
@@ -39,14 +44,36 @@ public class HibernateQueryFactory implements QueryFactory<HibernateQuery, Hiber
     }
 
     public HibernateQueryFactory(JPQLTemplates templates, Provider<Session> session) {
+        this(templates, session, null);
+    }
+
+    /**
+     * Create a new HibernateQueryFactory instance
+     *
+     * @param templates templates for serialization
+     * @param session
+     * @param queryCache cache for serialized query strings shared by the created queries,
+     *        requires templates with a stable parameter layout
+     */
+    public HibernateQueryFactory(JPQLTemplates templates, Provider<Session> session,
+            @Nullable JPQLQueryCache queryCache) {
+        if (queryCache != null && !templates.isStableParameterLayout()) {
+            throw new IllegalArgumentException("Query cache requires templates with a stable "
+                    + "parameter layout, e.g. HQLTemplates.STABLE");
+        }
         this.session = session;
         this.templates = templates;
+        this.queryCache = queryCache;
     }
 
     public HibernateDeleteClause delete(EntityPath<?> path) {
         return new HibernateDeleteClause(session.get(), path, templates);
     }
 
+    public HibernateInsertClause insert(EntityPath<?> path) {
+        return new HibernateInsertClause(session.get(), path, templates);
+    }
+
     public HibernateQuery from(EntityPath<?> from) {
         return query().from(from);
     }
@@ -56,7 +83,9 @@ public class HibernateQueryFactory implements QueryFactory<HibernateQuery, Hiber
     }
 
     public HibernateQuery query() {
-        return new HibernateQuery(session.get(), templates);
+        HibernateQuery query = new HibernateQuery(session.get(), templates);
+        query.setQueryCache(queryCache);
+        return query;
     }
 
     public HibernateSubQuery subQuery() {
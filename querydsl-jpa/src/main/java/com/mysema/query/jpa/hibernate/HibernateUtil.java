@@ -30,6 +30,7 @@ import org.hibernate.type.LongType;
 import org.hibernate.type.ShortType;
 import org.hibernate.type.Type;
 
+import com.mysema.query.jpa.ConstantSlot;
 import com.mysema.query.types.ParamExpression;
 import com.mysema.query.types.ParamNotSetException;
 import com.mysema.query.types.expr.Param;
@@ -61,7 +62,7 @@ public final class HibernateUtil {
             Map<ParamExpression<?>, Object> params) {
         for (Map.Entry<Object, String> entry : constants.entrySet()) {
             String key = entry.getValue();
-            Object val = entry.getKey();
+            Object val = ConstantSlot.getValue(entry.getKey());
             if (Param.class.isInstance(val)) {
                 val = params.get(val);
                 if (val == null) {
@@ -34,6 +34,13 @@ public class ScrollableResultsIterator<T> implements CloseableIterator<T> {
 
     private final boolean asArray;
 
+    @Nullable
+    private final DefaultSessionHolder session;
+
+    private final int clearInterval;
+
+    private long rows;
+
     @Nullable
     private Boolean hasNext;
 
@@ -42,8 +49,25 @@ public class ScrollableResultsIterator<T> implements CloseableIterator<T> {
     }
 
     public ScrollableResultsIterator(ScrollableResults results, boolean asArray) {
+        this(results, asArray, null, 0);
+    }
+
+    /**
+     * Create a new ScrollableResultsIterator instance which clears the given session
+     * each time <code>clearInterval</code> rows have been returned. Rows returned before
+     * the clear are detached from the session.
+     *
+     * @param results
+     * @param asArray
+     * @param session
+     * @param clearInterval
+     */
+    public ScrollableResultsIterator(ScrollableResults results, boolean asArray,
+            @Nullable DefaultSessionHolder session, int clearInterval) {
         this.results = results;
         this.asArray = asArray;
+        this.session = session;
+        this.clearInterval = session != null ? clearInterval : 0;
     }
 
     @Override
@@ -54,6 +78,9 @@ public class ScrollableResultsIterator<T> implements CloseableIterator<T> {
     @Override
     public boolean hasNext() {
         if (hasNext == null) {
+            if (clearInterval > 0 && rows > 0 && rows % clearInterval == 0) {
+                session.clear();
+            }
             hasNext = results.next();
         }
         return hasNext;
@@ -64,6 +91,7 @@ public class ScrollableResultsIterator<T> implements CloseableIterator<T> {
     public T next() {
         if (hasNext()) {
             hasNext = null;
+            rows++;
             if (asArray) {
                 return (T) results.get();
             } else {
@@ -16,9 +16,15 @@ package com.mysema.query.jpa.impl;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
@@ -29,9 +35,12 @@ import javax.persistence.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Function;
 import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.commons.lang.IteratorAdapter;
 import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinExpression;
+import com.mysema.query.JoinType;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.QueryException;
 import com.mysema.query.QueryMetadata;
@@ -39,11 +48,12 @@ import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLQueryBase;
+import com.mysema.query.jpa.JPQLQueryMixin;
 import com.mysema.query.jpa.JPQLTemplates;
-import com.mysema.query.jpa.hibernate.FactoryExpressionTransformer;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.FactoryExpression;
 import com.mysema.query.types.FactoryExpressionUtils;
+import com.mysema.query.types.Path;
 
 /**
  * Abstract base class for JPA API based implementations of the JPQLQuery interface
@@ -56,6 +66,28 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
 
     private static final Logger logger = LoggerFactory.getLogger(JPAQuery.class);
 
+    private static final String ECLIPSELINK_CURSOR = "eclipselink.cursor";
+
+    private static final String OPENJPA_FETCH_BATCH_SIZE = "openjpa.FetchPlan.FetchBatchSize";
+
+    private static final int ITERATE_PAGE_SIZE = 1000;
+
+    private static final String HIBERNATE_READ_ONLY = "org.hibernate.readOnly";
+
+    private static final String HIBERNATE_FETCH_SIZE = "org.hibernate.fetchSize";
+
+    private static final String HIBERNATE_CACHEABLE = "org.hibernate.cacheable";
+
+    private static final String HIBERNATE_CACHE_REGION = "org.hibernate.cacheRegion";
+
+    private static final String ECLIPSELINK_READ_ONLY = "eclipselink.read-only";
+
+    private static final String ECLIPSELINK_FETCH_SIZE = "eclipselink.jdbc.fetch-size";
+
+    private static final String ECLIPSELINK_RESULTS_CACHE = "eclipselink.query-results-cache";
+
+    private static final String OPENJPA_RESULTS_CACHE = "openjpa.FetchPlan.QueryResultCacheEnabled";
+
     private static Class<?> hibernateQueryClass;
     
     static {
@@ -75,6 +107,16 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
     
     @Nullable
     protected FlushModeType flushMode;
+
+    @Nullable
+    protected Boolean cacheable, readOnly;
+
+    @Nullable
+    protected String cacheRegion;
+
+    protected int fetchSize = 0;
+
+    protected final List<Path<?>> fetchPlan = new ArrayList<Path<?>>();
         
     protected boolean factoryExpressionUsed = false;
     
@@ -152,6 +194,7 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
         if (flushMode != null) {
             query.setFlushMode(flushMode);
         }
+        setProviderHints(query);
         
         for (Map.Entry<String, Object> entry : hints.entrySet()) {
             query.setHint(entry.getKey(), entry.getValue());
@@ -165,27 +208,15 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
         if (!forCount && ((projection.size() == 1 && projection.get(0) instanceof FactoryExpression) || wrapped != null)) {
             Expression<?> expr = wrapped != null ? wrapped : projection.get(0);            
             String transformation = null;
-            if (hibernateQueryClass != null && hibernateQueryClass.isInstance(query)) {
+            Query hibernateQuery = getHibernateQuery(query);
+            if (hibernateQuery != null) {
                 transformation = "com.mysema.query.jpa.impl.HibernateQueryTransformation";
             }
 //            else if (query.getClass().getName().startsWith("org.eclipse.persistence")) {
 //                transformation = "com.mysema.query.jpa.impl.EclipseLinkQueryTransformation";
 //            }
             if (transformation != null) {
-                try {
-                    Constructor<?> c = Class.forName(transformation).getConstructor(Query.class, FactoryExpression.class);
-                    c.newInstance(query, expr);
-                } catch (NoSuchMethodException e) {
-                    throw new QueryException(e);
-                } catch (ClassNotFoundException e) {
-                    throw new QueryException(e);
-                } catch (InstantiationException e) {
-                    throw new QueryException(e);
-                } catch (IllegalAccessException e) {
-                    throw new QueryException(e);
-                } catch (InvocationTargetException e) {
-                    throw new QueryException(e);
-                }
+                newInstance(transformation, new Class[]{Query.class, FactoryExpression.class}, hibernateQuery, expr);
                 
             } else {
                 factoryExpressionUsed = true;
@@ -198,30 +229,186 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
 
         return query;
     }
+
+    /**
+     * Get the Hibernate query behind the given query, unwrapping container managed
+     * query proxies. Queries of other known providers are not unwrapped, since a failed
+     * unwrap may mark the active transaction for rollback.
+     * 
+     * @param query
+     * @return the Hibernate query or null, if the query is not backed by Hibernate
+     */
+    @Nullable
+    private static Query getHibernateQuery(Query query) {
+        if (hibernateQueryClass == null) {
+            return null;
+        } else if (hibernateQueryClass.isInstance(query)) {
+            return query;
+        }
+        String queryClass = query.getClass().getName();
+        if (queryClass.startsWith("org.eclipse.persistence") 
+         || queryClass.startsWith("org.apache.openjpa")
+         || queryClass.startsWith("org.datanucleus")) {
+            return null;
+        } else {
+            // proxies delegate to the target query, which returns itself for Object
+            Object unwrapped = query.unwrap(Object.class);
+            return hibernateQueryClass.isInstance(unwrapped) ? (Query) unwrapped : null;
+        }
+    }
+
+    /**
+     * Maps the read-only, fetch size and cache options to the hints of the provider
+     * 
+     * @param query
+     */
+    private void setProviderHints(Query query) {
+        String queryClass = query.getClass().getName();
+        if (getHibernateQuery(query) != null) {
+            if (readOnly != null) {
+                query.setHint(HIBERNATE_READ_ONLY, readOnly);
+            }
+            if (fetchSize > 0) {
+                query.setHint(HIBERNATE_FETCH_SIZE, fetchSize);
+            }
+            if (cacheable != null) {
+                query.setHint(HIBERNATE_CACHEABLE, cacheable);
+            }
+            if (cacheRegion != null) {
+                query.setHint(HIBERNATE_CACHE_REGION, cacheRegion);
+            }
+        } else if (queryClass.startsWith("org.eclipse.persistence")) {
+            if (readOnly != null) {
+                query.setHint(ECLIPSELINK_READ_ONLY, readOnly);
+            }
+            if (fetchSize > 0) {
+                query.setHint(ECLIPSELINK_FETCH_SIZE, fetchSize);
+            }
+            if (cacheable != null) {
+                query.setHint(ECLIPSELINK_RESULTS_CACHE, cacheable);
+            }
+        } else if (queryClass.startsWith("org.apache.openjpa")) {
+            if (fetchSize > 0) {
+                query.setHint(OPENJPA_FETCH_BATCH_SIZE, fetchSize);
+            }
+            if (cacheable != null) {
+                query.setHint(OPENJPA_RESULTS_CACHE, cacheable);
+            }
+        }
+    }
+
+    @Override
+    protected String buildQueryString(boolean forCountRow) {
+        if (forCountRow || fetchPlan.isEmpty()) {
+            return super.buildQueryString(forCountRow);
+        }
+        // fetch plan paths are fetched via left joins, which are omitted from count queries
+        // and from queries which don't select the owner of the path
+        QueryMetadata metadata = getMetadata().clone();
+        Set<Expression<?>> fetched = new HashSet<Expression<?>>(metadata.getProjection());
+        if (fetched.isEmpty()) {
+            // without a projection the query sources are selected
+            for (JoinExpression join : metadata.getJoins()) {
+                fetched.add(join.getTarget());
+            }
+        }
+        for (Path<?> path : fetchPlan) {
+            if (fetched.contains(path.getMetadata().getParent()) && !isJoined(metadata, path)) {
+                JoinExpression join = new JoinExpression(JoinType.LEFTJOIN, path);
+                join.addFlag(JPQLQueryMixin.FETCH);
+                metadata.addJoin(join);
+                fetched.add(path);
+            }
+        }
+        return buildQueryString(metadata, forCountRow);
+    }
+
+    private static boolean isJoined(QueryMetadata metadata, Path<?> path) {
+        for (JoinExpression join : metadata.getJoins()) {
+            if (join.getTarget().equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object newInstance(String className, Class<?>[] types, Object... args) {
+        try {
+            Constructor<?> c = Class.forName(className).getConstructor(types);
+            return c.newInstance(args);
+        } catch (NoSuchMethodException e) {
+            throw new QueryException(e);
+        } catch (ClassNotFoundException e) {
+            throw new QueryException(e);
+        } catch (InstantiationException e) {
+            throw new QueryException(e);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        } catch (InvocationTargetException e) {
+            throw new QueryException(e);
+        }
+    }
     
     /**
-     * Transforms results using FactoryExpression if ResultTransformer can't be used
+     * RowTransformer creates the results of a FactoryExpression projection from the rows
+     */
+    private static final class RowTransformer implements Function<Object, Object> {
+
+        private final FactoryExpression<?> expr;
+
+        RowTransformer(FactoryExpression<?> expr) {
+            this.expr = expr;
+        }
+
+        @Override
+        @Nullable
+        public Object apply(@Nullable Object row) {
+            if (row != null) {
+                if (!row.getClass().isArray()) {
+                    row = new Object[]{row};
+                }
+                return expr.newInstance((Object[])row);
+            } else {
+                return null;
+            }
+        }
+
+    }
+
+    private RowTransformer getRowTransformer() {
+        return new RowTransformer((FactoryExpression<?>)getMetadata().getProjection().get(0));
+    }
+
+    /**
+     * Transforms results using FactoryExpression if ResultTransformer can't be used. 
+     * The rows are replaced in place in the result list of the provider, which is copied
+     * only if it can't be modified.
      * 
      * @param query
      * @return
      */
+    @SuppressWarnings("unchecked")
     private List<?> getResultList(Query query) {
-        // TODO : use lazy list here?
         if (factoryExpressionUsed) {
-            List<?> results = query.getResultList();
-            List<Object> rv = new ArrayList<Object>(results.size());
-            FactoryExpression<?> expr = (FactoryExpression<?>)getMetadata().getProjection().get(0);
-            for (Object o : results) {
-                if (o != null) {
-                    if (!o.getClass().isArray()) {
-                        o = new Object[]{o};
-                    }   
-                    rv.add(expr.newInstance((Object[])o));
-                } else {
-                    rv.add(null);
-                }                
+            List<Object> rows = query.getResultList();
+            RowTransformer transformer = getRowTransformer();
+            ListIterator<Object> iterator = rows.listIterator();
+            while (iterator.hasNext()) {
+                Object result = transformer.apply(iterator.next());
+                try {
+                    iterator.set(result);
+                } catch (UnsupportedOperationException e) {
+                    // read-only list, copy the transformed and the remaining rows
+                    List<Object> rv = new ArrayList<Object>(rows.size());
+                    rv.addAll(rows.subList(0, iterator.previousIndex()));
+                    rv.add(result);
+                    while (iterator.hasNext()) {
+                        rv.add(transformer.apply(iterator.next()));
+                    }
+                    return rv;
+                }
             }
-            return rv;
+            return rows;
         } else {
             return query.getResultList();
         }
@@ -236,27 +423,107 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
     @Nullable
     private Object getSingleResult(Query query) {
         if (factoryExpressionUsed) {
-            Object result = query.getSingleResult();
-            FactoryExpression<?> expr = (FactoryExpression<?>)getMetadata().getProjection().get(0);
-            if (result != null) {
-                if (!result.getClass().isArray()) {
-                    result = new Object[]{result};
-                }
-                return expr.newInstance((Object[])result);    
-            } else {
-                return null;
-            }            
+            return getRowTransformer().apply(query.getSingleResult());
         } else {
             return query.getSingleResult();
         }
     }
 
+    /**
+     * Streams the results using a provider specific cursor : a forward-only scroll for
+     * Hibernate, a cursor for EclipseLink and a lazily loaded result list for OpenJPA. For
+     * other providers ordered queries are executed for consecutive pages of the results and
+     * unordered queries are listed at once, since pages of an unordered query may skip or 
+     * repeat rows. The entities of read pages stay managed in the persistence context.
+     * 
+     * @param query
+     * @param asArray
+     * @return
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private CloseableIterator<?> getResultIterator(Query query, boolean asArray) {
+        final CloseableIterator<?> iterator;
+        String queryClass = query.getClass().getName();
+        Query hibernateQuery = getHibernateQuery(query);
+        if (hibernateQuery != null) {
+            iterator = (CloseableIterator<?>) newInstance("com.mysema.query.jpa.impl.HibernateQueryIterator", 
+                    new Class[]{Query.class, boolean.class}, hibernateQuery, asArray);
+        } else if (queryClass.startsWith("org.eclipse.persistence")) {
+            query.setHint(ECLIPSELINK_CURSOR, Boolean.TRUE);
+            Object cursor = query.getSingleResult();
+            iterator = new CursorIterator((Iterator<?>)cursor, cursor);
+        } else if (queryClass.startsWith("org.apache.openjpa")) {
+            if (fetchSize == 0) {
+                query.setHint(OPENJPA_FETCH_BATCH_SIZE, ITERATE_PAGE_SIZE);
+            }
+            List<?> results = query.getResultList();
+            iterator = new CursorIterator(results.iterator(), results);
+        } else if (!getMetadata().getOrderBy().isEmpty()) {
+            QueryModifiers modifiers = getMetadata().getModifiers();
+            iterator = new PagedQueryIterator<Object>(query, modifiers.getOffset(), modifiers.getLimit(), 
+                    ITERATE_PAGE_SIZE);
+        } else {
+            iterator = new IteratorAdapter<Object>(query.getResultList().iterator());
+        }
+        
+        if (factoryExpressionUsed) {
+            final RowTransformer transformer = getRowTransformer();
+            return new CloseableIterator<Object>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+                @Override
+                public Object next() {
+                    return transformer.apply(iterator.next());
+                }
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+                @Override
+                public void close() {
+                    iterator.close();
+                }
+            };
+        } else {
+            return iterator;
+        }
+    }
+
+    /**
+     * Return the query results as an <tt>Iterator</tt>.<br>
+     * <br>
+     * For Hibernate, EclipseLink and OpenJPA the iterator holds a live database cursor,
+     * which stays open until the iterator is closed, so the iterator needs to be closed
+     * after usage, also when not all rows have been read.<br>
+     */
+    @SuppressWarnings("unchecked")
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
-        return new IteratorAdapter<Object[]>(list(args).iterator());
+        boolean asArray = args.length > 1 && FactoryExpressionUtils.wrap(Arrays.asList(args)) == null;
+        Query query = createQuery(args);
+        try {
+            return (CloseableIterator<Object[]>) getResultIterator(query, asArray);
+        } finally {
+            reset();
+        }
     }
 
+    /**
+     * Return the query results as an <tt>Iterator</tt>.<br>
+     * <br>
+     * For Hibernate, EclipseLink and OpenJPA the iterator holds a live database cursor,
+     * which stays open until the iterator is closed, so the iterator needs to be closed
+     * after usage, also when not all rows have been read.<br>
+     */
+    @SuppressWarnings("unchecked")
     public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
-        return new IteratorAdapter<RT>(list(projection).iterator());
+        Query query = createQuery(projection);
+        try {
+            return (CloseableIterator<RT>) getResultIterator(query, false);
+        } finally {
+            reset();
+        }
     }
 
     @Override
@@ -354,5 +621,83 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
         return (Q)this;
     }
 
+    /**
+     * Entities retrieved by this query will be loaded in a read-only mode where
+     * the provider doesn't dirty-check them. Supported for Hibernate and EclipseLink.
+     * 
+     * @param readOnly
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return (Q)this;
+    }
+
+    /**
+     * Set a fetch size for the underlying JDBC query. Supported for Hibernate, 
+     * EclipseLink and OpenJPA.
+     * 
+     * @param fetchSize the fetch size
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return (Q)this;
+    }
+
+    /**
+     * Enable caching of this query result set. Supported for Hibernate, EclipseLink 
+     * and OpenJPA.
+     * 
+     * @param cacheable Should the query results be cacheable?
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+        return (Q)this;
+    }
+
+    /**
+     * Set the name of the cache region. Supported for Hibernate.
+     * 
+     * @param cacheRegion the name of a query cache region, or <tt>null</tt>
+     * for the default query cache
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setCacheRegion(String cacheRegion) {
+        this.cacheRegion = cacheRegion;
+        return (Q)this;
+    }
+
+    /**
+     * Fetch the given paths together with the results via left join fetch joins. 
+     * A path is fetched only if its owner is part of the projection or fetched itself.
+     * The joins are not used in count queries.
+     * 
+     * <p>Collection valued paths are not supported, since fetching them would return 
+     * the owner once per collection element.</p>
+     * 
+     * @param paths single valued association paths of the query sources
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setFetchPlan(Path<?>... paths) {
+        for (Path<?> path : paths) {
+            if (path.getMetadata().getParent() == null) {
+                throw new IllegalArgumentException("Expected association path, got " + path);
+            } else if (Collection.class.isAssignableFrom(path.getType()) 
+                    || Map.class.isAssignableFrom(path.getType())) {
+                throw new IllegalArgumentException("Collection valued paths can't be fetched, got " + path);
+            }
+        }
+        fetchPlan.clear();
+        fetchPlan.addAll(Arrays.asList(paths));
+        return (Q)this;
+    }
+
 
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.QueryException;
+
+/**
+ * CursorIterator adapts provider specific cursors and lazy result lists to the
+ * CloseableIterator interface. The cursor is closed via its close method, if it has one.
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+class CursorIterator<T> implements CloseableIterator<T> {
+
+    private final Iterator<T> iterator;
+
+    private final Object cursor;
+
+    public CursorIterator(Iterator<T> iterator, Object cursor) {
+        this.iterator = iterator;
+        this.cursor = cursor;
+    }
+
+    @Override
+    public void close() {
+        Method close;
+        try {
+            close = cursor.getClass().getMethod("close");
+        } catch (NoSuchMethodException e) {
+            return;
+        }
+        try {
+            close.invoke(cursor);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        } catch (InvocationTargetException e) {
+            throw new QueryException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+        return iterator.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import javax.persistence.Query;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ejb.HibernateQuery;
+
+import com.mysema.query.jpa.hibernate.ScrollableResultsIterator;
+
+/**
+ * HibernateQueryIterator iterates the results of a Hibernate backed JPA query via
+ * a forward-only scroll
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+public class HibernateQueryIterator<T> extends ScrollableResultsIterator<T> {
+
+    public HibernateQueryIterator(Query query, boolean asArray) {
+        super(((HibernateQuery)query).getHibernateQuery().scroll(ScrollMode.FORWARD_ONLY), asArray);
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import com.mysema.query.jpa.JPQLBatch;
+import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.types.ParamExpression;
+
+/**
+ * JPABatch executes the batch items of JPA update and delete clauses
+ *
+ * @author tiwe
+ *
+ */
+class JPABatch extends JPQLBatch<Query> {
+
+    private final EntityManager entityManager;
+
+    JPABatch(EntityManager entityManager, JPQLTemplates templates, boolean update) {
+        super(templates, update);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    protected Query createQuery(String queryString) {
+        return entityManager.createQuery(queryString);
+    }
+
+    @Override
+    protected void setConstants(Query query, Map<Object, String> constants,
+            Map<ParamExpression<?>, Object> params) {
+        JPAUtil.setConstants(query, constants, params);
+    }
+
+    @Override
+    protected int executeUpdate(Query query) {
+        return query.executeUpdate();
+    }
+
+}
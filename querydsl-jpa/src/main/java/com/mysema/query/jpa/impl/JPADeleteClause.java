@@ -36,7 +36,11 @@ import com.mysema.query.types.Predicate;
  */
 public class JPADeleteClause implements DeleteClause<JPADeleteClause>{
 
-    private final QueryMetadata metadata = new DefaultQueryMetadata();
+    private QueryMetadata metadata = new DefaultQueryMetadata();
+
+    private final EntityPath<?> entity;
+
+    private final JPABatch batch;
 
     private final EntityManager entityManager;
 
@@ -49,18 +53,61 @@ public class JPADeleteClause implements DeleteClause<JPADeleteClause>{
     public JPADeleteClause(EntityManager entityManager, EntityPath<?> entity, JPQLTemplates templates) {
         this.entityManager = entityManager;
         this.templates = templates;
+        this.entity = entity;
+        this.batch = new JPABatch(entityManager, templates, false);
         metadata.addJoin(JoinType.DEFAULT, entity);
     }
 
+    /**
+     * Add the current state of bindings as a batch item
+     *
+     * @return
+     */
+    public JPADeleteClause addBatch() {
+        QueryMetadata item = metadata;
+        metadata = new DefaultQueryMetadata();
+        metadata.addJoin(JoinType.DEFAULT, entity);
+        batch.add(item);
+        return this;
+    }
+
+    /**
+     * Set the amount of batch items after which the pending items are executed
+     *
+     * @param flushSize amount of items or 0 to execute the items only on execution of the clause
+     * @return
+     */
+    public JPADeleteClause setFlushSize(int flushSize) {
+        batch.setFlushSize(flushSize);
+        return this;
+    }
+
     @Override
     public long execute() {
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForDelete(metadata);
-        Map<Object,String> constants = serializer.getConstantToLabel();
+        if (batch.isEmpty()) {
+            JPQLSerializer serializer = new JPQLSerializer(templates);
+            serializer.serializeForDelete(metadata);
+            Map<Object,String> constants = serializer.getConstantToLabel();
+
+            Query query = entityManager.createQuery(serializer.toString());
+            JPAUtil.setConstants(query, constants, metadata.getParams());
+            return query.executeUpdate();
+        } else {
+            long rv = 0;
+            for (int count : executeBatch()) {
+                rv += count;
+            }
+            return rv;
+        }
+    }
 
-        Query query = entityManager.createQuery(serializer.toString());
-        JPAUtil.setConstants(query, constants, metadata.getParams());
-        return query.executeUpdate();
+    /**
+     * Execute the batch items and get the amount of affected rows per item
+     *
+     * @return
+     */
+    public int[] executeBatch() {
+        return batch.execute();
     }
     
     @Override
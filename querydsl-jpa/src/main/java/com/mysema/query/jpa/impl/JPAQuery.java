@@ -88,6 +88,12 @@ public final class JPAQuery extends AbstractJPAQuery<JPAQuery> implements JPQLQu
         q.flushMode = flushMode;
         q.hints.putAll(hints);
         q.lockMode = lockMode;
+        q.readOnly = readOnly;
+        q.fetchSize = fetchSize;
+        q.cacheable = cacheable;
+        q.cacheRegion = cacheRegion;
+        q.fetchPlan.addAll(fetchPlan);
+        q.setQueryCache(getQueryCache());
         return q;
     }
 
@@ -13,11 +13,13 @@
  */
 package com.mysema.query.jpa.impl;
 
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 import javax.persistence.EntityManager;
 
 import com.mysema.query.QueryFactory;
 import com.mysema.query.jpa.HQLTemplates;
+import com.mysema.query.jpa.JPQLQueryCache;
 import com.mysema.query.jpa.JPQLTemplates;
 import com.mysema.query.types.EntityPath;
 
@@ -31,6 +33,9 @@ public class JPAQueryFactory implements QueryFactory<JPAQuery, JPASubQuery>  {
 
     private final JPQLTemplates templates;
 
+    @Nullable
+    private final JPQLQueryCache queryCache;
+
     private final Provider<EntityManager> entityManager;
 
     public JPAQueryFactory(Provider<EntityManager> entityManager) {
@@ -38,8 +43,26 @@ public class JPAQueryFactory implements QueryFactory<JPAQuery, JPASubQuery>  {
     }
 
     public JPAQueryFactory(JPQLTemplates templates, Provider<EntityManager> entityManager) {
+        this(templates, entityManager, null);
+    }
+
+    /**
+     * Create a new JPAQueryFactory instance
+     *
+     * @param templates templates for serialization
+     * @param entityManager
+     * @param queryCache cache for serialized query strings shared by the created queries,
+     *        requires templates with a stable parameter layout
+     */
+    public JPAQueryFactory(JPQLTemplates templates, Provider<EntityManager> entityManager,
+            @Nullable JPQLQueryCache queryCache) {
+        if (queryCache != null && !templates.isStableParameterLayout()) {
+            throw new IllegalArgumentException("Query cache requires templates with a stable "
+                    + "parameter layout, e.g. HQLTemplates.STABLE");
+        }
         this.entityManager = entityManager;
         this.templates = templates;
+        this.queryCache = queryCache;
     }
 
     public JPADeleteClause delete(EntityPath<?> path) {
@@ -55,7 +78,9 @@ public class JPAQueryFactory implements QueryFactory<JPAQuery, JPASubQuery>  {
     }
 
     public JPAQuery query() {
-        return new JPAQuery(entityManager.get(), templates);
+        JPAQuery query = new JPAQuery(entityManager.get(), templates);
+        query.setQueryCache(queryCache);
+        return query;
     }
 
     public JPASubQuery subQuery() {
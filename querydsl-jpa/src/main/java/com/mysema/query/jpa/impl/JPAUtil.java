@@ -17,6 +17,7 @@ import java.util.Map;
 
 import javax.persistence.Query;
 
+import com.mysema.query.jpa.ConstantSlot;
 import com.mysema.query.types.ParamExpression;
 import com.mysema.query.types.ParamNotSetException;
 import com.mysema.query.types.expr.Param;
@@ -34,7 +35,7 @@ public final class JPAUtil {
     public static void setConstants(Query query, Map<Object,String> constants, Map<ParamExpression<?>, Object> params) {
         for (Map.Entry<Object,String> entry : constants.entrySet()) {
             String key = entry.getValue();
-            Object val = entry.getKey();
+            Object val = ConstantSlot.getValue(entry.getKey());
             if (Param.class.isInstance(val)) {
                 val = params.get(val);
                 if (val == null) {
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+import javax.persistence.Query;
+
+import com.mysema.commons.lang.CloseableIterator;
+
+/**
+ * PagedQueryIterator iterates the results of a JPA query by executing it repeatedly
+ * for consecutive pages of the result. It is used only for ordered queries, since the pages
+ * of an unordered query may skip or repeat rows. The entities of read pages stay managed in
+ * the persistence context, so the memory usage still grows with the amount of read rows.
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+class PagedQueryIterator<T> implements CloseableIterator<T> {
+
+    private final Query query;
+
+    private final long offset;
+
+    @Nullable
+    private final Long limit;
+
+    private final int pageSize;
+
+    private long read;
+
+    private boolean exhausted;
+
+    private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+    public PagedQueryIterator(Query query, @Nullable Long offset, @Nullable Long limit, int pageSize) {
+        this.query = query;
+        this.offset = offset != null ? offset.longValue() : 0l;
+        this.limit = limit;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void close() {
+        exhausted = true;
+        page = Collections.<T>emptyList().iterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean hasNext() {
+        if (page.hasNext()) {
+            return true;
+        } else if (exhausted) {
+            return false;
+        }
+        long max = limit != null ? Math.min(pageSize, limit.longValue() - read) : pageSize;
+        if (max <= 0) {
+            exhausted = true;
+            return false;
+        }
+        query.setFirstResult((int)(offset + read));
+        query.setMaxResults((int)max);
+        List<T> results = query.getResultList();
+        read += results.size();
+        exhausted = results.size() < max;
+        page = results.iterator();
+        return page.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (hasNext()) {
+            return page.next();
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -103,6 +103,48 @@ public abstract class AbstractHibernateTest extends AbstractStandardTest{
         cats.close();
     }
 
+    @Test
+    public void Iterate() {
+        CloseableIterator<Cat> cats = query().from(QCat.cat).setFetchSize(2).iterate(QCat.cat);
+        int count = 0;
+        while (cats.hasNext()) {
+            assertNotNull(cats.next());
+            count++;
+        }
+        cats.close();
+        assertEquals(query().from(QCat.cat).count(), count);
+    }
+
+    @Test
+    public void Iterate_Array() {
+        CloseableIterator<Object[]> rows = query().from(QCat.cat).iterate(QCat.cat.name, QCat.cat.birthdate);
+        assertTrue(rows.hasNext());
+        while (rows.hasNext()) {
+            assertEquals(2, rows.next().length);
+        }
+        rows.close();
+    }
+
+    @Test
+    public void Iterate_With_Clear_Interval() {
+        CloseableIterator<Cat> cats = query().from(QCat.cat).setClearInterval(1).iterate(QCat.cat);
+        Cat first = cats.next();
+        assertTrue(session.contains(first));
+        assertNotNull(cats.next());
+        assertFalse(session.contains(first));
+        cats.close();
+    }
+
+    @Test
+    public void Iterate_With_Clear_Interval_After_Clone() {
+        HibernateQuery query = query().from(QCat.cat).setClearInterval(1).clone(session);
+        CloseableIterator<Cat> cats = query.iterate(QCat.cat);
+        Cat first = cats.next();
+        assertNotNull(cats.next());
+        assertFalse(session.contains(first));
+        cats.close();
+    }
+
     @Test
     public void ScrollArray() throws IOException{
         CloseableIterator<Object[]> rows = new ScrollableResultsIterator<Object[]>(query()
@@ -16,24 +16,30 @@ package com.mysema.query;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
 
 import org.junit.Test;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLTemplates;
 import com.mysema.query.jpa.domain.Cat;
 import com.mysema.query.jpa.domain.QCat;
 import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.types.QTuple;
 
 /**
  * @author tiwe
@@ -80,6 +86,61 @@ public abstract class AbstractJPATest extends AbstractStandardTest {
         assertFalse(results.isEmpty());
     }
 
+    @Test
+    public void Iterate() {
+        CloseableIterator<Cat> cats = query().from(QCat.cat).iterate(QCat.cat);
+        int count = 0;
+        while (cats.hasNext()) {
+            assertNotNull(cats.next());
+            count++;
+        }
+        cats.close();
+        assertEquals(query().from(QCat.cat).count(), count);
+    }
+
+    @Test
+    public void Iterate_Array() {
+        CloseableIterator<Object[]> rows = query().from(QCat.cat).iterate(QCat.cat.name, QCat.cat.id);
+        assertTrue(rows.hasNext());
+        while (rows.hasNext()) {
+            assertEquals(2, rows.next().length);
+        }
+        rows.close();
+    }
+
+    @Test
+    public void Iterate_Tuple() {
+        CloseableIterator<Tuple> tuples = query().from(QCat.cat).where(QCat.cat.name.isNotNull()).orderBy(QCat.cat.name.asc())
+                .limit(2).iterate(new QTuple(QCat.cat.name, QCat.cat));
+        assertEquals("Allen123", tuples.next().get(QCat.cat.name));
+        assertEquals("Bob123", tuples.next().get(QCat.cat).getName());
+        assertFalse(tuples.hasNext());
+        tuples.close();
+    }
+
+    @Test
+    public void List_Tuple() {
+        List<Tuple> tuples = query().from(QCat.cat).where(QCat.cat.name.isNotNull()).orderBy(QCat.cat.name.asc())
+                .list(new QTuple(QCat.cat.name, QCat.cat));
+        assertEquals("Allen123", tuples.get(0).get(QCat.cat.name));
+        assertEquals("Bob123", tuples.get(1).get(QCat.cat).getName());
+        assertEquals(query().from(QCat.cat).where(QCat.cat.name.isNotNull()).count(), tuples.size());
+    }
+
+    @Test
+    public void List_Tuple_Read_Twice_And_Sort() {
+        List<Tuple> tuples = query().from(QCat.cat).where(QCat.cat.name.isNotNull()).orderBy(QCat.cat.name.asc())
+                .list(new QTuple(QCat.cat.name, QCat.cat));
+        assertSame(tuples.get(0), tuples.get(0));
+        Collections.sort(tuples, new Comparator<Tuple>() {
+            @Override
+            public int compare(Tuple t1, Tuple t2) {
+                return t2.get(QCat.cat.name).compareTo(t1.get(QCat.cat.name));
+            }
+        });
+        assertEquals("Allen123", tuples.get(tuples.size() - 1).get(QCat.cat.name));
+    }
+
     @Test
     public void Hint(){
         javax.persistence.Query query = query().from(QCat.cat)
@@ -90,6 +151,58 @@ public abstract class AbstractJPATest extends AbstractStandardTest {
         assertFalse(query.getResultList().isEmpty());
     }
 
+    private static void assertHint(javax.persistence.Query query, @Nullable String hibernateHint,
+            @Nullable String eclipseLinkHint, @Nullable String openJPAHint, Object value) {
+        String queryClass = query.getClass().getName();
+        String hint = queryClass.startsWith("org.eclipse.persistence") ? eclipseLinkHint 
+                    : queryClass.startsWith("org.apache.openjpa") ? openJPAHint 
+                    : hibernateHint;
+        if (hint != null) {
+            assertEquals(String.valueOf(value), String.valueOf(query.getHints().get(hint)));
+        }
+    }
+
+    @Test
+    public void Read_Only_And_Fetch_Size(){
+        javax.persistence.Query query = query().from(QCat.cat).setReadOnly(true).setFetchSize(10)
+                .createQuery(QCat.cat);
+        assertHint(query, "org.hibernate.readOnly", "eclipselink.read-only", null, true);
+        assertHint(query, "org.hibernate.fetchSize", "eclipselink.jdbc.fetch-size", 
+                "openjpa.FetchPlan.FetchBatchSize", 10);
+        assertFalse(query.getResultList().isEmpty());
+    }
+
+    @Test
+    public void Cacheable(){
+        javax.persistence.Query query = query().from(QCat.cat).setCacheable(true).setCacheRegion("cats")
+                .createQuery(QCat.cat);
+        assertHint(query, "org.hibernate.cacheable", "eclipselink.query-results-cache", 
+                "openjpa.FetchPlan.QueryResultCacheEnabled", true);
+        assertHint(query, "org.hibernate.cacheRegion", null, null, "cats");
+        assertFalse(query.getResultList().isEmpty());
+    }
+
+    @Test
+    public void Fetch_Plan(){
+        QCat cat = QCat.cat;
+        JPAQuery query = query().from(cat).where(cat.name.isNotNull()).setFetchPlan(cat.mate);
+        assertTrue(query.toString().contains("left join fetch cat.mate"));
+        assertEquals(query.count(), query.list(cat).size());
+    }
+
+    @Test
+    public void Fetch_Plan_Without_Owner(){
+        QCat cat = QCat.cat;
+        List<String> names = query().from(cat).where(cat.name.isNotNull()).setFetchPlan(cat.mate)
+                .list(cat.name);
+        assertEquals(query().from(cat).where(cat.name.isNotNull()).count(), names.size());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void Fetch_Plan_Collection(){
+        query().from(QCat.cat).setFetchPlan(QCat.cat.kittens);
+    }
+
     @Test
     public void Hint2(){
         assertFalse(query().from(QCat.cat).setHint("org.hibernate.cacheable", true)
@@ -14,6 +14,7 @@
 package com.mysema.query.jpa;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import javax.inject.Provider;
 
@@ -27,11 +28,13 @@ import com.mysema.query.jpa.hibernate.HibernateQueryFactory;
 
 public class HibernateQueryFactoryTest {
 
+    private Provider<Session> provider;
+
     private HibernateQueryFactory queryFactory;
 
     @Before
     public void setUp(){
-        Provider<Session> provider = new Provider<Session>(){
+        provider = new Provider<Session>(){
             @Override
             public Session get() {
                 return EasyMock.createNiceMock(Session.class);
@@ -60,9 +63,27 @@ public class HibernateQueryFactoryTest {
         assertNotNull(queryFactory.delete(QAnimal.animal));
     }
 
+    @Test
+    public void Insert(){
+        assertNotNull(queryFactory.insert(QAnimal.animal));
+    }
+
     @Test
     public void Update(){
         assertNotNull(queryFactory.update(QAnimal.animal));
     }
 
+    @Test
+    public void Query_With_Cache(){
+        JPQLQueryCache cache = new JPQLQueryCache();
+        HibernateQueryFactory factory = new HibernateQueryFactory(HQLTemplates.STABLE, provider, cache);
+        assertSame(cache, factory.query().getQueryCache());
+        assertSame(cache, factory.query().clone(provider.get()).getQueryCache());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void Query_Cache_Requires_Stable_Templates(){
+        new HibernateQueryFactory(HQLTemplates.DEFAULT, provider, new JPQLQueryCache());
+    }
+
 }
@@ -14,14 +14,18 @@
 package com.mysema.query.jpa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -31,7 +35,9 @@ import antlr.TokenStreamException;
 import com.mysema.query.jpa.domain.Cat;
 import com.mysema.query.jpa.domain.QCat;
 import com.mysema.query.jpa.hibernate.HibernateDeleteClause;
+import com.mysema.query.jpa.hibernate.HibernateInsertClause;
 import com.mysema.query.jpa.hibernate.HibernateQuery;
+import com.mysema.query.jpa.hibernate.HibernateSubQuery;
 import com.mysema.query.jpa.hibernate.HibernateUpdateClause;
 import com.mysema.query.jpa.hibernate.HibernateUtil;
 import com.mysema.query.types.EntityPath;
@@ -98,6 +104,10 @@ public class IntegrationTest extends ParsingTest {
         return new HibernateDeleteClause(session, entity);
     }
 
+    private HibernateInsertClause insert(EntityPath<?> entity){
+        return new HibernateInsertClause(session, entity);
+    }
+
     private HibernateUpdateClause update(EntityPath<?> entity){
         return new HibernateUpdateClause(session, entity);
     }
@@ -154,6 +164,120 @@ public class IntegrationTest extends ParsingTest {
         assertEquals(1, amount);
     }
 
+    @Test
+    public void Update_Batch(){
+        session.save(new Cat("Bob",10));
+        session.save(new Cat("Steve",11));
+        session.save(new Cat("Tom",12));
+
+        QCat cat = QCat.cat;
+        HibernateUpdateClause update = update(cat);
+        update.where(cat.name.eq("Bob")).set(cat.name, "Bobby").addBatch();
+        update.where(cat.name.eq("Steve")).set(cat.name, "Stevie").addBatch();
+        update.where(cat.name.eq("Tim")).set(cat.name, "Timmy").addBatch();
+        assertEquals(2, update.execute());
+
+        assertEquals(2l, new HibernateQuery(session).from(cat).where(cat.name.in("Bobby", "Stevie")).count());
+    }
+
+    @Test
+    public void Update_Batch_With_FlushSize(){
+        session.save(new Cat("Bob",10));
+        session.save(new Cat("Steve",11));
+
+        QCat cat = QCat.cat;
+        HibernateUpdateClause update = update(cat).setFlushSize(1);
+        update.where(cat.name.eq("Bob")).set(cat.name, "Bobby").addBatch();
+        assertEquals(0l, new HibernateQuery(session).from(cat).where(cat.name.eq("Bob")).count());
+        update.where(cat.name.eq("Tim")).set(cat.name, "Timmy").addBatch();
+        assertEquals(Arrays.asList(1, 0), toList(update.executeBatch()));
+    }
+
+    @Test
+    public void Delete_Batch(){
+        session.save(new Cat("Bob",10));
+        session.save(new Cat("Steve",11));
+        session.save(new Cat("Tom",12));
+
+        QCat cat = QCat.cat;
+        HibernateDeleteClause delete = delete(cat);
+        delete.where(cat.name.eq("Bob")).addBatch();
+        delete.where(cat.name.eq("Steve")).addBatch();
+        delete.where(cat.name.eq("Tim")).addBatch();
+        assertEquals(Arrays.asList(1, 1, 0), toList(delete.executeBatch()));
+
+        assertEquals(1l, new HibernateQuery(session).from(cat).where(cat.name.in("Bob", "Steve", "Tom")).count());
+    }
+
+    @Test
+    public void Insert_Select(){
+        session.save(new Cat("Bob",10));
+        session.save(new Cat("Steve",11));
+
+        QCat cat = QCat.cat;
+        QCat other = new QCat("other");
+        long amount = insert(cat).columns(cat.id, cat.name)
+            .select(new HibernateSubQuery().from(other)
+                .where(other.name.eq("Bob"))
+                .list(other.id.add(100), other.name))
+            .execute();
+        assertEquals(1, amount);
+
+        assertEquals(2l, new HibernateQuery(session).from(cat).where(cat.name.eq("Bob")).count());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void Insert_Entities(){
+        QCat cat = QCat.cat;
+        StatelessSession statelessSession = session.getSessionFactory().openStatelessSession(session.connection());
+        try {
+            HibernateInsertClause insert = new HibernateInsertClause(statelessSession, cat);
+            insert.add(new Cat("Bob",10), new Cat("Steve",11), new Cat("Tom",12));
+            assertEquals(3, insert.execute());
+            assertEquals(0, insert.execute());
+        } finally {
+            statelessSession.close();
+        }
+
+        assertEquals(3l, new HibernateQuery(session).from(cat).where(cat.name.in("Bob", "Steve", "Tom")).count());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void Insert_Entities_After_Failure(){
+        QCat cat = QCat.cat;
+        StatelessSession statelessSession = session.getSessionFactory().openStatelessSession(session.connection());
+        try {
+            HibernateInsertClause insert = new HibernateInsertClause(statelessSession, cat);
+            try {
+                insert.add(new Cat("Bob",10), new Cat("Steve",10));
+                fail("Expected HibernateException");
+            } catch (HibernateException e) {
+                // expected
+            }
+            insert.add(new Cat("Tom",12));
+            assertEquals(2, insert.execute());
+        } finally {
+            statelessSession.close();
+        }
+
+        assertEquals(2l, new HibernateQuery(session).from(cat).where(cat.name.in("Bob", "Steve", "Tom")).count());
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void Insert_Entities_Without_StatelessSession(){
+        insert(QCat.cat).add(new Cat("Bob",10));
+    }
+
+    private static List<Integer> toList(int[] counts) {
+        List<Integer> rv = new ArrayList<Integer>(counts.length);
+        for (int count : counts) {
+            rv.add(count);
+        }
+        return rv;
+    }
+
     @Test
     public void Collection() throws Exception{
         List<Cat> cats = Arrays.asList(new Cat("Bob",10), new Cat("Steve",11));
@@ -13,6 +13,13 @@
  */
 package com.mysema.query.jpa;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
@@ -22,7 +29,14 @@ import org.junit.runner.RunWith;
 import antlr.RecognitionException;
 import antlr.TokenStreamException;
 
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.query.jpa.domain.QCat;
+import com.mysema.query.jpa.impl.JPADeleteClause;
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.jpa.impl.JPAUpdateClause;
 import com.mysema.query.jpa.impl.JPAUtil;
+import com.mysema.query.types.ParamNotSetException;
+import com.mysema.query.types.expr.Param;
 import com.mysema.testutil.JPAConfig;
 import com.mysema.testutil.JPATestRunner;
 
@@ -86,6 +100,93 @@ public class JPAIntegrationTest extends ParsingTest {
         // NOTE : commented out, because HQLSDB doesn't support these queries
     }
 
+    private void saveCats() {
+        entityManager.persist(new Cat("Bob",10));
+        entityManager.persist(new Cat("Steve",11));
+        entityManager.persist(new Cat("Tom",12));
+        entityManager.flush();
+    }
+
+    private long count(QCat cat, String... names) {
+        return new JPAQuery(entityManager).from(cat).where(cat.name.in(names)).count();
+    }
+
+    private static List<Integer> toList(int[] counts) {
+        List<Integer> rv = new ArrayList<Integer>(counts.length);
+        for (int count : counts) {
+            rv.add(count);
+        }
+        return rv;
+    }
+
+    @Test
+    public void Update_Batch() {
+        saveCats();
+        QCat cat = QCat.cat;
+        JPAUpdateClause update = new JPAUpdateClause(entityManager, cat);
+        update.where(cat.name.eq("Bob")).set(cat.name, "Bobby").addBatch();
+        update.where(cat.name.eq("Steve")).set(cat.name, "Stevie").addBatch();
+        update.where(cat.name.eq("Tim")).set(cat.name, "Timmy").addBatch();
+        assertEquals(2, update.execute());
+
+        assertEquals(2l, count(cat, "Bobby", "Stevie"));
+    }
+
+    @Test
+    public void Update_Batch_With_Stable_Templates() {
+        saveCats();
+        QCat cat = QCat.cat;
+        JPAUpdateClause update = new JPAUpdateClause(entityManager, cat, HQLTemplates.STABLE);
+        update.where(cat.name.eq("Bob")).set(cat.name, "Bobby").addBatch();
+        update.where(cat.name.eq("Steve")).set(cat.name, "Stevie").addBatch();
+        assertEquals(Arrays.asList(1, 1), toList(update.executeBatch()));
+
+        assertEquals(2l, count(cat, "Bobby", "Stevie"));
+    }
+
+    @Test
+    public void Update_Batch_With_FlushSize() {
+        saveCats();
+        QCat cat = QCat.cat;
+        JPAUpdateClause update = new JPAUpdateClause(entityManager, cat).setFlushSize(1);
+        update.where(cat.name.eq("Bob")).set(cat.name, "Bobby").addBatch();
+        assertEquals(0l, count(cat, "Bob"));
+        update.where(cat.name.eq("Tim")).set(cat.name, "Timmy").addBatch();
+        assertEquals(Arrays.asList(1, 0), toList(update.executeBatch()));
+    }
+
+    @Test
+    public void Delete_Batch() {
+        saveCats();
+        QCat cat = QCat.cat;
+        JPADeleteClause delete = new JPADeleteClause(entityManager, cat, HQLTemplates.STABLE);
+        delete.where(cat.name.eq("Bob")).addBatch();
+        delete.where(cat.name.eq("Steve")).addBatch();
+        delete.where(cat.name.eq("Tim")).addBatch();
+        assertEquals(Arrays.asList(1, 1, 0), toList(delete.executeBatch()));
+
+        assertEquals(1l, count(cat, "Bob", "Steve", "Tom"));
+    }
+
+    @Test
+    public void Delete_Batch_After_Failure() {
+        saveCats();
+        QCat cat = QCat.cat;
+        JPADeleteClause delete = new JPADeleteClause(entityManager, cat);
+        delete.where(cat.name.eq("Bob")).addBatch();
+        delete.where(cat.name.eq(new Param<String>(String.class, "name"))).addBatch();
+        try {
+            delete.executeBatch();
+            fail("Expected ParamNotSetException");
+        } catch (ParamNotSetException e) {
+            // expected
+        }
+
+        // the failed items have been discarded
+        delete.where(cat.name.eq("Steve")).addBatch();
+        assertEquals(Arrays.asList(1), toList(delete.executeBatch()));
+    }
+
     public void setEntityManager(EntityManager entityManager) {
         this.entityManager = entityManager;
     }
@@ -14,6 +14,7 @@
 package com.mysema.query.jpa;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import javax.inject.Provider;
 import javax.persistence.EntityManager;
@@ -27,11 +28,13 @@ import com.mysema.query.jpa.impl.JPAQueryFactory;
 
 public class JPAQueryFactoryTest {
 
+    private Provider<EntityManager> provider;
+
     private JPAQueryFactory queryFactory;
 
     @Before
     public void setUp(){
-        Provider<EntityManager> provider = new Provider<EntityManager>(){
+        provider = new Provider<EntityManager>(){
             @Override
             public EntityManager get() {
                 return EasyMock.createNiceMock(EntityManager.class);
@@ -65,4 +68,17 @@ public class JPAQueryFactoryTest {
         assertNotNull(queryFactory.update(QAnimal.animal));
     }
 
+    @Test
+    public void Query_With_Cache(){
+        JPQLQueryCache cache = new JPQLQueryCache();
+        JPAQueryFactory factory = new JPAQueryFactory(HQLTemplates.STABLE, provider, cache);
+        assertSame(cache, factory.query().getQueryCache());
+        assertSame(cache, factory.query().clone(provider.get()).getQueryCache());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void Query_Cache_Requires_Stable_Templates(){
+        new JPAQueryFactory(HQLTemplates.DEFAULT, provider, new JPQLQueryCache());
+    }
+
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.jpa.domain.Animal;
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.query.jpa.domain.QAnimal;
+import com.mysema.query.jpa.domain.QCat;
+import com.mysema.query.types.expr.Param;
+import com.mysema.query.types.path.PathBuilder;
+
+public class JPQLQueryCacheTest {
+
+    private static final JPQLTemplates templates = HQLTemplates.STABLE;
+
+    private final QCat cat = QCat.cat;
+
+    private final JPQLQueryCache cache = new JPQLQueryCache();
+
+    private QueryMetadata query() {
+        QueryMetadata md = new DefaultQueryMetadata();
+        md.addJoin(JoinType.DEFAULT, cat);
+        md.addProjection(cat);
+        return md;
+    }
+
+    private String serialize(JPQLTemplates templates, QueryMetadata metadata, Map<Object,String> constants) {
+        String queryString = cache.serialize(templates, metadata, false, constants);
+        JPQLSerializer serializer = new JPQLSerializer(templates);
+        serializer.serialize(metadata, false, null);
+        assertEquals(serializer.toString(), queryString);
+        return queryString;
+    }
+
+    private static Map<String,Object> values(Map<Object,String> constants) {
+        Map<String,Object> rv = new HashMap<String,Object>();
+        for (Map.Entry<Object,String> entry : constants.entrySet()) {
+            rv.put(entry.getValue(), ConstantSlot.getValue(entry.getKey()));
+        }
+        return rv;
+    }
+
+    @Test
+    public void Same_Shape() {
+        QueryMetadata md1 = query();
+        md1.addWhere(cat.name.eq("Bob").and(cat.bodyWeight.gt(2.0)));
+        Map<Object,String> constants1 = new HashMap<Object,String>();
+        String queryString = serialize(templates, md1, constants1);
+
+        QueryMetadata md2 = query();
+        md2.addWhere(cat.name.eq("Ruth").and(cat.bodyWeight.gt(3.0)));
+        Map<Object,String> constants2 = new HashMap<Object,String>();
+        assertEquals(queryString, serialize(templates, md2, constants2));
+        assertEquals(1, cache.size());
+
+        Map<String,Object> values = values(constants2);
+        assertEquals("Ruth", values.get("1"));
+        assertEquals(3.0, values.get("2"));
+    }
+
+    @Test
+    public void Same_Shape_With_Params_And_Collections() {
+        Param<String> name = new Param<String>(String.class, "name");
+        QueryMetadata md1 = query();
+        md1.addWhere(cat.name.eq(name).and(cat.id.in(1, 2, 3)).and(cat.name.ne(name)));
+        serialize(templates, md1, new HashMap<Object,String>());
+
+        QueryMetadata md2 = query();
+        md2.addWhere(cat.name.eq(name).and(cat.id.in(4, 5)).and(cat.name.ne(name)));
+        Map<Object,String> constants = new HashMap<Object,String>();
+        serialize(templates, md2, constants);
+        assertEquals(1, cache.size());
+
+        Map<String,Object> values = values(constants);
+        assertEquals(name, values.get("1"));
+        assertEquals(Arrays.asList(4, 5), values.get("2"));
+        assertEquals(2, values.size());
+    }
+
+    @Test
+    public void Same_Alias_Different_Entities() {
+        QueryMetadata md1 = new DefaultQueryMetadata();
+        QCat cat = new QCat("e");
+        md1.addJoin(JoinType.DEFAULT, cat);
+        md1.addProjection(cat);
+        String catQuery = serialize(templates, md1, new HashMap<Object,String>());
+
+        QueryMetadata md2 = new DefaultQueryMetadata();
+        QAnimal animal = new QAnimal("e");
+        md2.addJoin(JoinType.DEFAULT, animal);
+        md2.addProjection(animal);
+        String animalQuery = serialize(templates, md2, new HashMap<Object,String>());
+        assertFalse(catQuery.equals(animalQuery));
+        assertEquals(2, cache.size());
+
+        QueryMetadata md3 = new DefaultQueryMetadata();
+        PathBuilder<Cat> catEntity = new PathBuilder<Cat>(Cat.class, "entity");
+        md3.addJoin(JoinType.DEFAULT, catEntity);
+        md3.addProjection(catEntity);
+        serialize(templates, md3, new HashMap<Object,String>());
+
+        QueryMetadata md4 = new DefaultQueryMetadata();
+        PathBuilder<Animal> animalEntity = new PathBuilder<Animal>(Animal.class, "entity");
+        md4.addJoin(JoinType.DEFAULT, animalEntity);
+        md4.addProjection(animalEntity);
+        serialize(templates, md4, new HashMap<Object,String>());
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void Different_Shapes() {
+        QueryMetadata md1 = query();
+        md1.addWhere(cat.name.eq("Bob"));
+        serialize(templates, md1, new HashMap<Object,String>());
+
+        QueryMetadata md2 = query();
+        md2.addWhere(cat.name.ne("Bob"));
+        serialize(templates, md2, new HashMap<Object,String>());
+
+        cache.serialize(templates, md1, true, new HashMap<Object,String>());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void Update_And_Delete_Shapes() {
+        QueryMetadata md1 = new DefaultQueryMetadata();
+        md1.addJoin(JoinType.DEFAULT, cat);
+        md1.addProjection(cat.name.eq("Bobby"));
+        md1.addWhere(cat.name.eq("Bob"));
+        String queryString = cache.serializeForUpdate(templates, md1, new HashMap<Object,String>());
+
+        QueryMetadata md2 = new DefaultQueryMetadata();
+        md2.addJoin(JoinType.DEFAULT, cat);
+        md2.addProjection(cat.name.eq("Stevie"));
+        md2.addWhere(cat.name.eq("Steve"));
+        Map<Object,String> constants = new HashMap<Object,String>();
+        assertEquals(queryString, cache.serializeForUpdate(templates, md2, constants));
+        assertEquals(1, cache.size());
+
+        Map<String,Object> values = values(constants);
+        assertEquals("Stevie", values.get("1"));
+        assertEquals("Steve", values.get("2"));
+
+        JPQLSerializer serializer = new JPQLSerializer(templates);
+        serializer.serializeForDelete(md2);
+        assertEquals(serializer.toString(),
+                cache.serializeForDelete(templates, md2, new HashMap<Object,String>()));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void Converted_Constants() {
+        QueryMetadata md1 = query();
+        md1.addWhere(cat.name.startsWith("Bo"));
+        serialize(templates, md1, new HashMap<Object,String>());
+
+        QueryMetadata md2 = query();
+        md2.addWhere(cat.name.startsWith("Ru"));
+        Map<Object,String> constants = new HashMap<Object,String>();
+        serialize(templates, md2, constants);
+        assertEquals("Ru%", values(constants).get("1"));
+    }
+
+    @Test
+    public void Unstable_Layout_Is_Not_Cached() {
+        QueryMetadata md = query();
+        md.addWhere(cat.name.eq("Bob"));
+        Map<Object,String> constants = new HashMap<Object,String>();
+        serialize(HQLTemplates.DEFAULT, md, constants);
+        assertTrue(cache.size() == 0);
+        assertEquals("1", constants.get("Bob"));
+    }
+
+}
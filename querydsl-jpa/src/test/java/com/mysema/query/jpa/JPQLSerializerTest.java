@@ -15,6 +15,8 @@ package com.mysema.query.jpa;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import com.mysema.query.DefaultQueryMetadata;
@@ -66,6 +68,49 @@ public class JPQLSerializerTest {
         //$.parameterRelease.id.eq(releaseId).and($.parameterGroups.any().id.in(filter.getGroups()));
     }
     
+    @Test
+    public void Stable_Parameter_Layout() {
+        JPQLTemplates templates = HQLTemplates.STABLE;
+        NumberPath<Integer> a = new NumberPath<Integer>(Integer.class, "a");
+        NumberPath<Integer> b = new NumberPath<Integer>(Integer.class, "b");
+        
+        JPQLSerializer serializer = new JPQLSerializer(templates);
+        serializer.handle(a.eq(1).and(b.eq(1)));
+        assertEquals("a = ?1 and b = ?2", serializer.toString());
+        
+        serializer = new JPQLSerializer(templates);
+        serializer.handle(a.eq(1).and(b.eq(2)));
+        assertEquals("a = ?1 and b = ?2", serializer.toString());
+        assertEquals(2, serializer.getConstantToLabel().size());
+    }
+    
+    @Test
+    public void Stable_Parameter_Layout_Collection_Buckets() {
+        JPQLTemplates templates = HQLTemplates.STABLE;
+        NumberPath<Integer> a = new NumberPath<Integer>(Integer.class, "a");
+        
+        JPQLSerializer serializer = new JPQLSerializer(templates);
+        serializer.handle(a.in(1, 2, 3));
+        String queryString = serializer.toString();
+        Object constant = serializer.getConstantToLabel().keySet().iterator().next();
+        assertEquals(Arrays.asList(1, 2, 3, 3), ConstantSlot.getValue(constant));
+        
+        serializer = new JPQLSerializer(templates);
+        serializer.handle(a.in(1, 2, 3, 4));
+        assertEquals(queryString, serializer.toString());
+        constant = serializer.getConstantToLabel().keySet().iterator().next();
+        assertEquals(Arrays.asList(1, 2, 3, 4), ConstantSlot.getValue(constant));
+    }
+
+    @Test
+    public void Stable_Parameter_Layout_Instances() {
+        assertEquals(false, HQLTemplates.DEFAULT.isStableParameterLayout());
+        assertEquals(true, HQLTemplates.STABLE.isStableParameterLayout());
+        assertEquals(false, JPQLTemplates.DEFAULT.isStableParameterLayout());
+        assertEquals(true, JPQLTemplates.STABLE.isStableParameterLayout());
+        assertEquals(true, new HQLTemplates('\\', true).isStableParameterLayout());
+    }
+
     @Test
     public void Like() {
         JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.testutil.JPAConfig;
+import com.mysema.testutil.JPATestRunner;
+
+@RunWith(JPATestRunner.class)
+@JPAConfig("derby")
+public class PagedQueryIteratorTest {
+
+    private EntityManager entityManager;
+
+    public void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Before
+    public void setUp() {
+        for (int i = 1; i <= 7; i++) {
+            entityManager.persist(new Cat("Paged" + i, 1000 + i));
+        }
+        entityManager.flush();
+    }
+
+    private Query query() {
+        return entityManager.createQuery(
+                "select cat.id from Cat cat where cat.name like 'Paged%' order by cat.id asc");
+    }
+
+    private List<Integer> read(CloseableIterator<Integer> iterator) {
+        List<Integer> rv = new ArrayList<Integer>();
+        try {
+            while (iterator.hasNext()) {
+                rv.add(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+        return rv;
+    }
+
+    @Test
+    public void Iterate_All_Pages() {
+        assertEquals(Arrays.asList(1001, 1002, 1003, 1004, 1005, 1006, 1007),
+                read(new PagedQueryIterator<Integer>(query(), null, null, 3)));
+    }
+
+    @Test
+    public void Iterate_Exact_Pages() {
+        assertEquals(Arrays.asList(1002, 1003, 1004, 1005, 1006, 1007),
+                read(new PagedQueryIterator<Integer>(query(), 1l, null, 3)));
+    }
+
+    @Test
+    public void Offset_And_Limit_Across_Page_Boundary() {
+        assertEquals(Arrays.asList(1003, 1004, 1005, 1006),
+                read(new PagedQueryIterator<Integer>(query(), 2l, 4l, 3)));
+    }
+
+    @Test
+    public void Limit_Beyond_Results() {
+        assertEquals(Arrays.asList(1006, 1007),
+                read(new PagedQueryIterator<Integer>(query(), 5l, 10l, 3)));
+    }
+
+    @Test
+    public void Close_Stops_Iteration() {
+        CloseableIterator<Integer> iterator = new PagedQueryIterator<Integer>(query(), null, null, 3);
+        assertEquals(Integer.valueOf(1001), iterator.next());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+}
@@ -15,6 +15,8 @@ package com.mysema.query.lucene;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -22,13 +24,23 @@ import javax.annotation.Nullable;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanFilter;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.DuplicateFilter;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilterClause;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Searcher;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
 
 import com.google.common.base.Function;
 import com.mysema.commons.lang.CloseableIterator;
@@ -72,6 +84,8 @@ SimpleProjectable<T> {
 
     @Nullable
     private Filter filter;
+
+    private final List<Predicate> cachedFilters = new ArrayList<Predicate>();
     
     @Nullable
     private Sort querySort;
@@ -83,6 +97,9 @@ SimpleProjectable<T> {
         this.serializer = serializer;
         this.searcher = searcher;
         this.transformer = transformer;
+        if (transformer instanceof DocumentTransformer<?>) {
+            this.fieldSelector = createFieldSelector(((DocumentTransformer<?>)transformer).getPaths());
+        }
     }
 
     public AbstractLuceneQuery(Searcher searcher, Function<Document, T> transformer) {
@@ -91,26 +108,40 @@ SimpleProjectable<T> {
 
     @Override
     public boolean exists() {
-        return innerCount() > 0;
+        return innerCount(1) > 0;
     }
 
     @Override
     public boolean notExists() {
-        return innerCount() == 0;
+        return innerCount(1) == 0;
     }
 
     private long innerCount(){
+        return innerCount(Integer.MAX_VALUE);
+    }
+
+    private long innerCount(int maxCount){
         try {
             final int maxDoc = searcher.maxDoc();
             if (maxDoc == 0) {
                 return 0;
             }
-            return searcher.search(createQuery(), filter, maxDoc).totalHits;
+            CountingCollector collector = new CountingCollector(maxCount);
+            search(collector);
+            return collector.getCount();
         } catch (final IOException e) {
             throw new QueryException(e);
         }
     }
 
+    private void search(Collector collector) throws IOException {
+        try {
+            searcher.search(createQuery(), getFilter(), collector);
+        } catch (CountingCollector.TerminatedException e) {
+            // early termination
+        }
+    }
+
     @Override
     public long count() {
         return innerCount();
@@ -155,6 +186,45 @@ SimpleProjectable<T> {
         return (Q)this;
     }
 
+    /**
+     * Apply the given predicates as filters to the search results. The filters are cached
+     * per IndexReader by the serializer and are shared by queries using the same predicates.
+     * They don't contribute to the scores of the results.
+     *
+     * @param predicates
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q filter(Predicate... predicates) {
+        for (Predicate predicate : predicates) {
+            cachedFilters.add(predicate);
+        }
+        return (Q)this;
+    }
+
+    @Nullable
+    private Filter getFilter() {
+        if (cachedFilters.isEmpty()) {
+            return filter;
+        }
+        QueryMetadata metadata = queryMixin.getMetadata();
+        List<Filter> filters = new ArrayList<Filter>(cachedFilters.size() + 1);
+        if (filter != null) {
+            filters.add(filter);
+        }
+        for (Predicate predicate : cachedFilters) {
+            filters.add(serializer.toFilter(predicate, metadata));
+        }
+        if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        BooleanFilter booleanFilter = new BooleanFilter();
+        for (Filter f : filters) {
+            booleanFilter.add(new FilterClause(f, Occur.MUST));
+        }
+        return booleanFilter;
+    }
+
     @Override
     public Q limit(long limit) {
         return queryMixin.limit(limit);
@@ -163,10 +233,9 @@ SimpleProjectable<T> {
     @Override
     public CloseableIterator<T> iterate() {
         final QueryMetadata metadata = queryMixin.getMetadata();
-        final List<OrderSpecifier<?>> orderBys = metadata.getOrderBy();
         final Long queryLimit = metadata.getModifiers().getLimit();
         final Long queryOffset = metadata.getModifiers().getOffset();
-        Sort sort = querySort;
+        Sort sort = getSort();
         int limit;
         final int offset = queryOffset != null ? queryOffset.intValue() : 0;
         try {
@@ -180,9 +249,6 @@ SimpleProjectable<T> {
         if (queryLimit != null && queryLimit.intValue() < limit) {
             limit = queryLimit.intValue();
         }
-        if (sort == null && !orderBys.isEmpty()) {
-            sort = serializer.toSort(orderBys);
-        }
 
         try {
             ScoreDoc[] scoreDocs;
@@ -191,9 +257,9 @@ SimpleProjectable<T> {
                 throw new QueryException("The given limit (" + limit + ") and offset (" + offset + ") cause an integer overflow.");
             }
             if (sort != null) {
-                scoreDocs = searcher.search(createQuery(), filter, sumOfLimitAndOffset, sort).scoreDocs;
+                scoreDocs = searcher.search(createQuery(), getFilter(), sumOfLimitAndOffset, sort).scoreDocs;
             } else {
-                scoreDocs = searcher.search(createQuery(), filter, sumOfLimitAndOffset).scoreDocs;
+                scoreDocs = searcher.search(createQuery(), getFilter(), sumOfLimitAndOffset).scoreDocs;
             }
             if (offset < scoreDocs.length) {
                 return new ResultIterator<T>(scoreDocs, offset, searcher, fieldSelector, transformer);
@@ -204,6 +270,77 @@ SimpleProjectable<T> {
         }
     }
 
+    /**
+     * Get the page of results which follows the given hit in the order of this query.
+     * The limit of the query is used as the page size and the offset is ignored. Pages
+     * of sorted queries can only be continued on the searcher they were obtained from.
+     *
+     * @param after last hit of the previous page or null for the first page
+     * @return
+     */
+    public SearchAfterResults<T> listAfter(@Nullable ScoreDoc after) {
+        Long limit = queryMixin.getMetadata().getModifiers().getLimit();
+        if (limit == null) {
+            throw new QueryException("A limit is required for paged results");
+        }
+        try {
+            int maxDoc = maxDoc();
+            int nHits = (int)Math.min(limit.longValue(), maxDoc);
+            if (nHits == 0) {
+                return new SearchAfterResults<T>(new ArrayList<T>(), null, 0);
+            }
+            Sort sort = getSort();
+            TopDocsCollector<?> collector;
+            if (sort != null) {
+                collector = TopFieldCollector.create(sort, nHits, true, false, false, false);
+            } else {
+                collector = TopScoreDocCollector.create(nHits, false);
+            }
+            if (after == null) {
+                searcher.search(createQuery(), getFilter(), collector);
+            } else if (sort == null) {
+                searcher.search(createQuery(), getFilter(), new SearchAfterCollector(collector, after));
+            } else if (searcher instanceof IndexSearcher) {
+                IndexReader reader = ((IndexSearcher)searcher).getIndexReader();
+                searcher.search(createQuery(), getFilter(), new SearchAfterCollector(collector, after, sort, reader));
+            } else {
+                throw new QueryException("Sorted paged results require an IndexSearcher");
+            }
+            TopDocs topDocs = collector.topDocs();
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            List<T> results = new IteratorAdapter<T>(
+                    new ResultIterator<T>(scoreDocs, 0, searcher, fieldSelector, transformer)).asList();
+            ScoreDoc last = scoreDocs.length > 0 ? scoreDocs[scoreDocs.length - 1] : null;
+            return new SearchAfterResults<T>(results, last, topDocs.totalHits);
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    /**
+     * Iterate over all matching documents in index order without scoring or sorting them.
+     * The order of the query is ignored, limit and offset are applied in index order.
+     *
+     * @return
+     */
+    public CloseableIterator<T> iterateInIndexOrder() {
+        QueryModifiers modifiers = queryMixin.getMetadata().getModifiers();
+        int offset = modifiers.getOffset() != null ? modifiers.getOffset().intValue() : 0;
+        int limit = modifiers.getLimit() != null ? modifiers.getLimit().intValue() : Integer.MAX_VALUE;
+        try {
+            int maxDoc = maxDoc();
+            if (maxDoc == 0) {
+                return new EmptyCloseableIterator<T>();
+            }
+            DocSetCollector collector = new DocSetCollector(maxDoc);
+            search(collector);
+            return new DocSetResultIterator<T>(collector.getDocs().iterator(), offset, limit,
+                    searcher, fieldSelector, transformer);
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
     @Override
     public CloseableIterator<T> iterateDistinct() {
         throw new UnsupportedOperationException("use distinct(path) instead");
@@ -238,12 +375,16 @@ SimpleProjectable<T> {
      */
     @SuppressWarnings("unchecked")
     public Q load(Path<?>... paths){
-        List<String> fields = new ArrayList<String>(paths.length);
+        this.fieldSelector = createFieldSelector(Arrays.asList(paths));
+        return (Q)this;
+    }
+
+    private FieldSelector createFieldSelector(Collection<? extends Path<?>> paths) {
+        List<String> fields = new ArrayList<String>(paths.size());
         for (Path<?> path : paths){
             fields.add(serializer.toField(path));
         }
-        this.fieldSelector = new MapFieldSelector(fields);
-        return (Q)this;
+        return new MapFieldSelector(fields);
     }
 
     @Override
@@ -299,7 +440,6 @@ SimpleProjectable<T> {
             if (maxDoc == 0) {
                 return null;
             }
-            final ScoreDoc[] scoreDocs = searcher.search(createQuery(), filter, maxDoc).scoreDocs;
             int index = 0;
             QueryModifiers modifiers = queryMixin.getMetadata().getModifiers();
             Long offset = modifiers.getOffset();
@@ -307,25 +447,63 @@ SimpleProjectable<T> {
                 index = offset.intValue();
             }
             Long limit = modifiers.getLimit();
-            if (unique && (limit == null ? scoreDocs.length - index > 1 :
-                                           limit > 1 && scoreDocs.length > 1)) {
-                throw new NonUniqueResultException("Unique result requested, but " + scoreDocs.length + " found.");
-            } else if (scoreDocs.length > index) {
-                Document document;
-                if (fieldSelector != null){
-                    document = searcher.doc(scoreDocs[index].doc, fieldSelector);
+            Sort sort = getSort();
+            int doc;
+            if (unique && index == 0 && (limit == null || limit > 1)) {
+                // either the only hit or an error is returned, so the order of the hits
+                // is irrelevant and the search can stop at the second hit
+                FirstHitsCollector collector = new FirstHitsCollector(2);
+                search(collector);
+                if (collector.getCount() > 1) {
+                    throw new NonUniqueResultException("Unique result requested, but more than one found.");
+                } else if (collector.getCount() > 0) {
+                    doc = collector.getDoc(0);
                 } else {
-                    document = searcher.doc(scoreDocs[index].doc);
+                    return null;
                 }
-                return transformer.apply(document);
             } else {
-                return null;
+                // at most offset + 2 hits are needed for the uniqueness check
+                int nHits = unique ? Math.max(index + 2, 2) : index + 1;
+                TopDocs topDocs;
+                if (sort != null) {
+                    topDocs = searcher.search(createQuery(), getFilter(), nHits, sort);
+                } else {
+                    topDocs = searcher.search(createQuery(), getFilter(), nHits);
+                }
+                ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+                if (unique && (limit == null ? scoreDocs.length - index > 1 :
+                                               limit > 1 && scoreDocs.length > 1)) {
+                    throw new NonUniqueResultException("Unique result requested, but " + topDocs.totalHits + " found.");
+                } else if (scoreDocs.length > index) {
+                    doc = scoreDocs[index].doc;
+                } else {
+                    return null;
+                }
+            }
+            Document document;
+            if (fieldSelector != null){
+                document = searcher.doc(doc, fieldSelector);
+            } else {
+                document = searcher.doc(doc);
             }
+            return transformer.apply(document);
         } catch (IOException e) {
             throw new QueryException(e);
         }
     }
 
+    @Nullable
+    private Sort getSort() {
+        List<OrderSpecifier<?>> orderBys = queryMixin.getMetadata().getOrderBy();
+        if (querySort != null) {
+            return querySort;
+        } else if (!orderBys.isEmpty()) {
+            return serializer.toSort(orderBys);
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public T singleResult() {
         return oneResult(false);
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.IOException;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.MultiSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Searchable;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.Weight;
+
+import com.mysema.query.QueryException;
+
+/**
+ * ConcurrentMultiSearcher searches multiple indexes concurrently via an ExecutorService
+ * and merges the top hits of the indexes in score or sort order. It can be used with
+ * LuceneQuery and TypedQuery to query sharded indexes.
+ *
+ * <p>Top hits searches and counts are distributed, other collector based searches are
+ * executed sequentially over the indexes.</p>
+ */
+public class ConcurrentMultiSearcher extends MultiSearcher {
+
+    private static final Comparator<ScoreDoc> SCORE_ORDER = new Comparator<ScoreDoc>() {
+        @Override
+        public int compare(ScoreDoc d1, ScoreDoc d2) {
+            if (d1.score != d2.score) {
+                return d1.score > d2.score ? -1 : 1;
+            } else {
+                return d1.doc < d2.doc ? -1 : (d1.doc == d2.doc ? 0 : 1);
+            }
+        }
+    };
+
+    private final ExecutorService executor;
+
+    private final Searchable[] searchables;
+
+    private final int[] starts;
+
+    public ConcurrentMultiSearcher(ExecutorService executor, Searchable... searchables) throws IOException {
+        super(searchables);
+        this.executor = executor;
+        this.searchables = getSearchables();
+        this.starts = getStarts();
+    }
+
+    @Override
+    public TopDocs search(final Weight weight, final Filter filter, final int nDocs) throws IOException {
+        List<TopDocs> results = invoke(new SearchTask<TopDocs>() {
+            @Override
+            public TopDocs search(Searchable searchable) throws IOException {
+                return searchable.search(weight, filter, nDocs);
+            }
+        });
+        int totalHits = 0;
+        float maxScore = Float.NEGATIVE_INFINITY;
+        List<ScoreDoc> scoreDocs = new ArrayList<ScoreDoc>();
+        for (int i = 0; i < results.size(); i++) {
+            TopDocs docs = results.get(i);
+            totalHits += docs.totalHits;
+            maxScore = Math.max(maxScore, docs.getMaxScore());
+            for (ScoreDoc scoreDoc : docs.scoreDocs) {
+                scoreDoc.doc += starts[i];
+                scoreDocs.add(scoreDoc);
+            }
+        }
+        return new TopDocs(totalHits, merge(scoreDocs, SCORE_ORDER, nDocs), maxScore);
+    }
+
+    @Override
+    public TopFieldDocs search(final Weight weight, final Filter filter, final int n, final Sort sort)
+            throws IOException {
+        List<TopFieldDocs> results = invoke(new SearchTask<TopFieldDocs>() {
+            @Override
+            public TopFieldDocs search(Searchable searchable) throws IOException {
+                return searchable.search(weight, filter, n, sort);
+            }
+        });
+        int totalHits = 0;
+        float maxScore = Float.NEGATIVE_INFINITY;
+        SortField[] fields = sort.getSort();
+        List<ScoreDoc> scoreDocs = new ArrayList<ScoreDoc>();
+        for (int i = 0; i < results.size(); i++) {
+            TopFieldDocs docs = results.get(i);
+            totalHits += docs.totalHits;
+            maxScore = Math.max(maxScore, docs.getMaxScore());
+            fields = docs.fields;
+            for (ScoreDoc scoreDoc : docs.scoreDocs) {
+                scoreDoc.doc += starts[i];
+                scoreDocs.add(scoreDoc);
+            }
+            for (int j = 0; j < fields.length; j++) {
+                if (fields[j].getType() == SortField.DOC) {
+                    // doc sort values are relative to the index
+                    for (ScoreDoc scoreDoc : docs.scoreDocs) {
+                        FieldDoc fieldDoc = (FieldDoc)scoreDoc;
+                        fieldDoc.fields[j] = Integer.valueOf(((Integer)fieldDoc.fields[j]).intValue() + starts[i]);
+                    }
+                }
+            }
+        }
+        ScoreDoc[] merged = merge(scoreDocs, new FieldDocComparator(fields), n);
+        return new TopFieldDocs(totalHits, merged, fields, maxScore);
+    }
+
+    @Override
+    public void search(final Weight weight, final Filter filter, Collector collector) throws IOException {
+        if (collector instanceof CountingCollector) {
+            // count the shards concurrently and sum the counts
+            final int maxCount = ((CountingCollector)collector).getMaxCount();
+            List<Integer> counts = invoke(new SearchTask<Integer>() {
+                @Override
+                public Integer search(Searchable searchable) throws IOException {
+                    CountingCollector shardCollector = new CountingCollector(maxCount);
+                    try {
+                        searchable.search(weight, filter, shardCollector);
+                    } catch (CountingCollector.TerminatedException e) {
+                        // max count reached in this shard
+                    }
+                    return shardCollector.getCount();
+                }
+            });
+            long total = 0;
+            for (Integer count : counts) {
+                total += count.intValue();
+            }
+            ((CountingCollector)collector).addCount(total);
+        } else {
+            super.search(weight, filter, collector);
+        }
+    }
+
+    private static ScoreDoc[] merge(List<ScoreDoc> scoreDocs, Comparator<ScoreDoc> comparator, int n) {
+        ScoreDoc[] rv = scoreDocs.toArray(new ScoreDoc[scoreDocs.size()]);
+        Arrays.sort(rv, comparator);
+        return rv.length > n ? Arrays.copyOf(rv, n) : rv;
+    }
+
+    private <T> List<T> invoke(final SearchTask<T> task) throws IOException {
+        List<Future<T>> futures = new ArrayList<Future<T>>(searchables.length);
+        try {
+            for (final Searchable searchable : searchables) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws IOException {
+                        return task.search(searchable);
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<T>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            } else {
+                throw new QueryException(e.getCause());
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private interface SearchTask<T> {
+
+        T search(Searchable searchable) throws IOException;
+
+    }
+
+    /**
+     * Compares the sort values of FieldDocs and global doc ids for ties
+     */
+    private static final class FieldDocComparator implements Comparator<ScoreDoc> {
+
+        private final SortField[] fields;
+
+        private final Collator[] collators;
+
+        FieldDocComparator(SortField[] fields) {
+            this.fields = fields;
+            this.collators = new Collator[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].getType() == SortField.STRING && fields[i].getLocale() != null) {
+                    collators[i] = Collator.getInstance(fields[i].getLocale());
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public int compare(ScoreDoc d1, ScoreDoc d2) {
+            Comparable<Object>[] v1 = ((FieldDoc)d1).fields, v2 = ((FieldDoc)d2).fields;
+            for (int i = 0; i < fields.length; i++) {
+                int c;
+                if (v1[i] == null) {
+                    c = v2[i] == null ? 0 : -1;
+                } else if (v2[i] == null) {
+                    c = 1;
+                } else if (collators[i] != null) {
+                    c = collators[i].compare(v1[i], v2[i]);
+                } else {
+                    c = v1[i].compareTo(v2[i]);
+                }
+                if (fields[i].getType() == SortField.SCORE) {
+                    // higher scores first
+                    c = -c;
+                }
+                if (c != 0) {
+                    return fields[i].getReverse() ? -c : c;
+                }
+            }
+            return d1.doc < d2.doc ? -1 : (d1.doc == d2.doc ? 0 : 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * CountingCollector counts the matching documents without scoring or collecting them.
+ * When a maximum count is given the search is terminated once it has been reached.
+ */
+public final class CountingCollector extends Collector {
+
+    /**
+     * Thrown to stop the collection of further hits. Instances are created per collector
+     * and carry no stack trace.
+     */
+    static final class TerminatedException extends RuntimeException {
+
+        private static final long serialVersionUID = -2532931364916185224L;
+
+        TerminatedException() {
+            super("Collection terminated");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+    }
+
+    private final TerminatedException terminated = new TerminatedException();
+
+    private final int maxCount;
+
+    private int count;
+
+    public CountingCollector() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxCount amount of hits after which the search is terminated
+     */
+    public CountingCollector(int maxCount) {
+        this.maxCount = maxCount;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) {
+        // scores are not needed
+    }
+
+    @Override
+    public void collect(int doc) {
+        if (++count >= maxCount) {
+            throw terminated;
+        }
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) {
+        // doc ids are not needed
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * Add the given amount of hits counted elsewhere, up to the maximum count
+     *
+     * @param hits
+     */
+    void addCount(long hits) {
+        count = (int)Math.min((long)count + hits, maxCount);
+    }
+
+}
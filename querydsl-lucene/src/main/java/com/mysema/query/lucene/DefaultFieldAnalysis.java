@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * DefaultFieldAnalysis translates substring matches into queries on companion fields
+ *
+ * <p>A reverse field holds the reversed tokens of its field, ends with matches are
+ * translated into prefix queries on it. An n-gram field holds the n-grams of the tokens of
+ * its field, contains matches are translated into conjunctions of n-gram term queries. For
+ * terms longer than the maximum gram size the n-grams may stem from different tokens of
+ * a document.</p>
+ */
+public class DefaultFieldAnalysis implements FieldAnalysis {
+
+    private static class NGramField {
+
+        final String field;
+
+        final int minGram, maxGram;
+
+        NGramField(String field, int minGram, int maxGram) {
+            this.field = field;
+            this.minGram = minGram;
+            this.maxGram = maxGram;
+        }
+
+    }
+
+    private final Map<String, String> reverseFields = new HashMap<String, String>();
+
+    private final Map<String, NGramField> ngramFields = new HashMap<String, NGramField>();
+
+    /**
+     * Register a field with the reversed tokens of the given field
+     *
+     * @param field
+     * @param reverseField
+     * @return
+     */
+    public DefaultFieldAnalysis addReverseField(String field, String reverseField) {
+        reverseFields.put(field, reverseField);
+        return this;
+    }
+
+    /**
+     * Register a field with the n-grams of the tokens of the given field
+     *
+     * @param field
+     * @param ngramField
+     * @param minGram minimum gram size
+     * @param maxGram maximum gram size
+     * @return
+     */
+    public DefaultFieldAnalysis addNGramField(String field, String ngramField, int minGram, int maxGram) {
+        if (minGram < 1 || maxGram < minGram) {
+            throw new IllegalArgumentException("Illegal gram sizes " + minGram + " and " + maxGram);
+        }
+        ngramFields.put(field, new NGramField(ngramField, minGram, maxGram));
+        return this;
+    }
+
+    @Override
+    @Nullable
+    public Query contains(String field, String term) {
+        NGramField ngramField = ngramFields.get(field);
+        if (ngramField == null || term.length() < ngramField.minGram) {
+            return null;
+        } else if (term.length() <= ngramField.maxGram) {
+            return new TermQuery(new Term(ngramField.field, term));
+        }
+        Set<String> grams = new LinkedHashSet<String>();
+        int n = ngramField.maxGram;
+        for (int i = 0; i + n <= term.length(); i++) {
+            grams.add(term.substring(i, i + n));
+        }
+        BooleanQuery bq = new BooleanQuery();
+        for (String gram : grams) {
+            bq.add(new TermQuery(new Term(ngramField.field, gram)), Occur.MUST);
+        }
+        return bq;
+    }
+
+    @Override
+    @Nullable
+    public Query endsWith(String field, String term) {
+        String reverseField = reverseFields.get(field);
+        if (reverseField == null) {
+            return null;
+        }
+        return new PrefixQuery(new Term(reverseField, new StringBuilder(term).reverse().toString()));
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.OpenBitSet;
+
+/**
+ * DocSetCollector collects the ids of all matching documents into a bit set without
+ * scoring them
+ */
+public final class DocSetCollector extends Collector {
+
+    private final OpenBitSet docs;
+
+    private int docBase;
+
+    /**
+     * @param maxDoc maxDoc of the searched index
+     */
+    public DocSetCollector(int maxDoc) {
+        this.docs = new OpenBitSet(maxDoc);
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) {
+        // scores are not needed
+    }
+
+    @Override
+    public void collect(int doc) {
+        docs.fastSet(docBase + doc);
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) {
+        this.docBase = docBase;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    public OpenBitSet getDocs() {
+        return docs;
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Searcher;
+
+import com.google.common.base.Function;
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.QueryException;
+
+/**
+ * DocSetResultIterator iterates the documents of a DocIdSetIterator in index order. The
+ * documents are loaded in batches like in {@link ResultIterator}.
+ *
+ * @param <T>
+ */
+public final class DocSetResultIterator<T> implements CloseableIterator<T> {
+
+    private final DocIdSetIterator docs;
+
+    private final Searcher searcher;
+
+    @Nullable
+    private final FieldSelector fieldSelector;
+
+    private final Function<Document,T> transformer;
+
+    private final Document[] batch;
+
+    private int remaining;
+
+    private int cursor, batchEnd;
+
+    private boolean exhausted;
+
+    public DocSetResultIterator(DocIdSetIterator docs, int offset, int limit, Searcher searcher,
+            @Nullable FieldSelector fieldSelector, Function<Document, T> transformer) {
+        this(docs, offset, limit, searcher, fieldSelector, transformer, ResultIterator.DEFAULT_BATCH_SIZE);
+    }
+
+    public DocSetResultIterator(DocIdSetIterator docs, int offset, int limit, Searcher searcher,
+            @Nullable FieldSelector fieldSelector, Function<Document, T> transformer, int batchSize) {
+        this.docs = docs;
+        this.searcher = searcher;
+        this.fieldSelector = fieldSelector;
+        this.transformer = transformer;
+        this.remaining = limit;
+        this.batch = new Document[Math.max(1, Math.min(batchSize, limit))];
+        try {
+            for (int i = 0; i < offset; i++) {
+                if (docs.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
+                    exhausted = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (cursor == batchEnd && remaining > 0 && !exhausted) {
+            loadBatch();
+        }
+        return cursor < batchEnd;
+    }
+
+    private void loadBatch() {
+        // doc ids are returned in index order, so the stored field reads are sequential
+        int[] ids = new int[Math.min(batch.length, remaining)];
+        int size = 0;
+        try {
+            while (size < ids.length) {
+                int doc = docs.nextDoc();
+                if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+                    exhausted = true;
+                    break;
+                }
+                ids[size++] = doc;
+            }
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+        for (int i = 0; i < size; i++) {
+            batch[i] = ResultIterator.loadDocument(searcher, ids[i], fieldSelector);
+        }
+        cursor = 0;
+        batchEnd = size;
+        remaining -= size;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Document document = batch[cursor];
+        batch[cursor++] = null;
+        return transformer.apply(document);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
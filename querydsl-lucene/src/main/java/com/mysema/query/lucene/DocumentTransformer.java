@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.util.Collection;
+
+import org.apache.lucene.document.Document;
+
+import com.google.common.base.Function;
+import com.mysema.query.types.Path;
+
+/**
+ * DocumentTransformer is a transformer which reads only the fields of known paths from
+ * the documents. Queries using such a transformer load only these fields, unless another
+ * FieldSelector is given explicitly.
+ *
+ * @param <T> result type
+ */
+public interface DocumentTransformer<T> extends Function<Document, T> {
+
+    /**
+     * Get the paths of the fields read by this transformer
+     *
+     * @return
+     */
+    Collection<? extends Path<?>> getPaths();
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.search.Query;
+
+/**
+ * FieldAnalysis provides index specific translations of substring matches, which can use
+ * companion fields of the index instead of leading wildcard queries
+ *
+ * @see DefaultFieldAnalysis
+ */
+public interface FieldAnalysis {
+
+    /**
+     * Get a query for terms of the given field containing the given term
+     *
+     * @param field field name
+     * @param term unescaped term
+     * @return query or null to use a wildcard query
+     */
+    @Nullable
+    Query contains(String field, String term);
+
+    /**
+     * Get a query for terms of the given field ending with the given term
+     *
+     * @param field field name
+     * @param term unescaped term
+     * @return query or null to use a wildcard query
+     */
+    @Nullable
+    Query endsWith(String field, String term);
+
+}
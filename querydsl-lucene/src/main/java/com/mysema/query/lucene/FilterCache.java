@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+
+/**
+ * FilterCache maps queries to filters which cache their matching documents per
+ * IndexReader. Reopened readers get new cache entries in the filters, entries of
+ * unreferenced readers are released by the filters themselves. The least recently used
+ * filters are removed when the maximum size is exceeded.
+ */
+public final class FilterCache {
+
+    public static final int DEFAULT_SIZE = 256;
+
+    private final Map<Query, Filter> filters;
+
+    public FilterCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param maxSize maximum amount of cached filters
+     */
+    public FilterCache(final int maxSize) {
+        this.filters = new LinkedHashMap<Query, Filter>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2896128457391232547L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, Filter> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the cached filter for the given query
+     *
+     * @param query
+     * @return
+     */
+    public synchronized Filter get(Query query) {
+        Filter filter = filters.get(query);
+        if (filter == null) {
+            filter = new CachingWrapperFilter(new QueryWrapperFilter(query));
+            filters.put(query, filter);
+        }
+        return filter;
+    }
+
+    public synchronized int size() {
+        return filters.size();
+    }
+
+    public synchronized void clear() {
+        filters.clear();
+    }
+
+}
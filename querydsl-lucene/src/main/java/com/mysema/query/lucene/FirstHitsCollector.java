@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * FirstHitsCollector collects the ids of the first matching documents in collection
+ * order without scoring them and terminates the search once enough hits have been found
+ */
+public final class FirstHitsCollector extends Collector {
+
+    private final CountingCollector.TerminatedException terminated = new CountingCollector.TerminatedException();
+
+    private final int[] docs;
+
+    private int count;
+
+    private int docBase;
+
+    /**
+     * @param maxHits amount of hits after which the search is terminated
+     */
+    public FirstHitsCollector(int maxHits) {
+        this.docs = new int[maxHits];
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) {
+        // scores are not needed
+    }
+
+    @Override
+    public void collect(int doc) {
+        docs[count++] = docBase + doc;
+        if (count == docs.length) {
+            throw terminated;
+        }
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) {
+        this.docBase = docBase;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getDoc(int index) {
+        return docs[index];
+    }
+
+}
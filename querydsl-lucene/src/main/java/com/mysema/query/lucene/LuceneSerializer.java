@@ -30,6 +30,8 @@ import org.apache.lucene.queryParser.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.PhraseQuery;
@@ -39,6 +41,7 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TermsFilter;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.util.NumericUtils;
 
@@ -75,6 +78,11 @@ public class LuceneSerializer {
         sortFields.put(BigInteger.class, SortField.LONG);
     }
     
+    /**
+     * minimum amount of values for which in operations are translated into term set filters
+     */
+    private static final int TERMS_FILTER_THRESHOLD = 32;
+
     private static final Splitter WS_SPLITTER = Splitter.on(Pattern.compile("\\s+"));
 
     public static final LuceneSerializer DEFAULT = new LuceneSerializer(false, true);
@@ -85,14 +93,30 @@ public class LuceneSerializer {
     
     private final Locale sortLocale;
 
+    private final FilterCache filterCache;
+
+    @Nullable
+    private final FieldAnalysis fieldAnalysis;
+
     public LuceneSerializer(boolean lowerCase, boolean splitTerms) {
         this(lowerCase, splitTerms, Locale.getDefault());
     }
 
     public LuceneSerializer(boolean lowerCase, boolean splitTerms, Locale sortLocale) {
+        this(lowerCase, splitTerms, sortLocale, new FilterCache());
+    }
+
+    public LuceneSerializer(boolean lowerCase, boolean splitTerms, Locale sortLocale, FilterCache filterCache) {
+        this(lowerCase, splitTerms, sortLocale, filterCache, null);
+    }
+
+    public LuceneSerializer(boolean lowerCase, boolean splitTerms, Locale sortLocale, FilterCache filterCache,
+            @Nullable FieldAnalysis fieldAnalysis) {
         this.lowerCase = lowerCase;
         this.splitTerms = splitTerms;
         this.sortLocale = sortLocale;
+        this.filterCache = filterCache;
+        this.fieldAnalysis = fieldAnalysis;
     }
     
     private Query toQuery(Operation<?> operation, QueryMetadata metadata) {
@@ -180,7 +204,14 @@ public class LuceneSerializer {
         if (terms.length > 1) {
             BooleanQuery bq = new BooleanQuery();
             for (String s : terms) {
-                bq.add(new WildcardQuery(new Term(field, "*" + s + "*")), Occur.MUST);
+                Query query = null;
+                if (fieldAnalysis != null && s.indexOf('*') == -1 && s.indexOf('?') == -1) {
+                    query = fieldAnalysis.contains(field, s);
+                }
+                if (query == null) {
+                    query = new WildcardQuery(new Term(field, "*" + s + "*"));
+                }
+                bq.add(query, Occur.MUST);
             }
             return bq;
         }
@@ -241,9 +272,31 @@ public class LuceneSerializer {
         String field = toField(path);
         Collection<?> values = (Collection<?>) ((Constant<?>) operation.getArg(1)).getConstant();
         BooleanQuery bq = new BooleanQuery();
+        if (values.size() >= TERMS_FILTER_THRESHOLD) {
+            // single terms are matched via the term dictionary without scoring
+            TermsFilter termsFilter = new TermsFilter();
+            for (Object value : values) {
+                String[] str = value instanceof Number ? new String[]{ convertNumber((Number)value) } : convert(path, value);
+                if (str.length == 1) {
+                    termsFilter.addTerm(new Term(field, str[0]));
+                } else {
+                    bq.add(eq(field, str, ignoreCase), Occur.SHOULD);
+                }
+            }
+            if (bq.clauses().isEmpty()) {
+                return new ConstantScoreQuery(termsFilter);
+            } else {
+                bq.add(new ConstantScoreQuery(termsFilter), Occur.SHOULD);
+                return bq;
+            }
+        }
         for (Object value : values) {
-            String[] str = convert(path, value);
-            bq.add(eq(field, str, ignoreCase), Occur.SHOULD);
+            if (value instanceof Number) {
+                bq.add(new TermQuery(new Term(field, convertNumber((Number)value))), Occur.SHOULD);
+            } else {
+                String[] str = convert(path, value);
+                bq.add(eq(field, str, ignoreCase), Occur.SHOULD);
+            }
         }
         return bq;
     }
@@ -259,16 +312,19 @@ public class LuceneSerializer {
         verifyArguments(operation);
         Path<?> path = getPath(operation.getArg(0));
         String field = toField(path);
-        String[] terms = convertEscaped(path, operation.getArg(1), metadata);
+        String[] terms = convert(path, operation.getArg(1), metadata);
         if (terms.length > 1) {
             BooleanQuery bq = new BooleanQuery();
             for (int i = 0; i < terms.length; ++i) {
-                String s = i == 0 ? terms[i] + "*" : "*" + terms[i] + "*";
-                bq.add(new WildcardQuery(new Term(field, s)), Occur.MUST);
+                if (i == 0) {
+                    bq.add(new WildcardQuery(new Term(field, QueryParser.escape(terms[i]) + "*")), Occur.MUST);
+                } else {
+                    bq.add(containsTerm(field, terms[i]), Occur.MUST);
+                }
             }
             return bq;
         }
-        return new PrefixQuery(new Term(field, terms[0]));
+        return new PrefixQuery(new Term(field, QueryParser.escape(terms[0])));
     }
 
 
@@ -277,31 +333,50 @@ public class LuceneSerializer {
         verifyArguments(operation);
         Path<?> path = getPath(operation.getArg(0));
         String field = toField(path);
-        String[] terms = convertEscaped(path, operation.getArg(1), metadata);
+        String[] terms = convert(path, operation.getArg(1), metadata);
         if (terms.length > 1) {
             BooleanQuery bq = new BooleanQuery();
             for (String s : terms) {
-                bq.add(new WildcardQuery(new Term(field, "*" + s + "*")), Occur.MUST);
+                bq.add(containsTerm(field, s), Occur.MUST);
             }
             return bq;
         }
-        return new WildcardQuery(new Term(field, "*" + terms[0] + "*"));
+        return containsTerm(field, terms[0]);
     }
 
     protected Query endsWith(Operation<?> operation, QueryMetadata metadata, boolean ignoreCase) {
         verifyArguments(operation);
         Path<?> path = getPath(operation.getArg(0));
         String field = toField(path);
-        String[] terms = convertEscaped(path, operation.getArg(1), metadata);
+        String[] terms = convert(path, operation.getArg(1), metadata);
         if (terms.length > 1) {
             BooleanQuery bq = new BooleanQuery();
             for (int i = 0; i < terms.length; ++i) {
-                String s = i == terms.length - 1 ? "*" + terms[i] : "*" + terms[i] + "*";
-                bq.add(new WildcardQuery(new Term(field, s)), Occur.MUST);
+                if (i == terms.length - 1) {
+                    bq.add(endsWithTerm(field, terms[i]), Occur.MUST);
+                } else {
+                    bq.add(containsTerm(field, terms[i]), Occur.MUST);
+                }
             }
             return bq;
         }
-        return new WildcardQuery(new Term(field, "*" + terms[0]));
+        return endsWithTerm(field, terms[0]);
+    }
+
+    private Query containsTerm(String field, String term) {
+        Query query = fieldAnalysis != null ? fieldAnalysis.contains(field, term) : null;
+        if (query == null) {
+            query = new WildcardQuery(new Term(field, "*" + QueryParser.escape(term) + "*"));
+        }
+        return query;
+    }
+
+    private Query endsWithTerm(String field, String term) {
+        Query query = fieldAnalysis != null ? fieldAnalysis.endsWith(field, term) : null;
+        if (query == null) {
+            query = new WildcardQuery(new Term(field, "*" + QueryParser.escape(term)));
+        }
+        return query;
     }
 
     protected Query between(Operation<?> operation, QueryMetadata metadata) {
@@ -517,14 +592,6 @@ public class LuceneSerializer {
         }
     }
 
-    private String[] convertEscaped(Path<?> leftHandSide, Expression<?> rightHandSide, QueryMetadata metadata) {
-        String[] str = convert(leftHandSide, rightHandSide, metadata);
-        for (int i = 0; i < str.length; i++){
-            str[i] = QueryParser.escape(str[i]);
-        }
-        return str;
-    }
-
     public Query toQuery(Expression<?> expr, QueryMetadata metadata) {
         if (expr instanceof Operation<?>) {
             return toQuery((Operation<?>) expr, metadata);
@@ -535,6 +602,18 @@ public class LuceneSerializer {
         }
     }
 
+    /**
+     * Convert the given expression to a filter which caches its matching documents per
+     * IndexReader. Equal expressions share the same filter.
+     *
+     * @param expr
+     * @param metadata
+     * @return
+     */
+    public Filter toFilter(Expression<?> expr, QueryMetadata metadata) {
+        return filterCache.get(toQuery(expr, metadata));
+    }
+
     public Sort toSort(List<? extends OrderSpecifier<?>> orderBys) {
         List<SortField> sorts = new ArrayList<SortField>(orderBys.size());
         for (OrderSpecifier<?> order : orderBys) {
@@ -14,6 +14,8 @@
 package com.mysema.query.lucene;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
 
 import javax.annotation.Nullable;
 
@@ -27,12 +29,18 @@ import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.QueryException;
 
 /**
+ * ResultIterator iterates the documents of the given hits in hit order. The documents
+ * are loaded in batches and in doc id order within each batch to keep the stored field
+ * reads sequential.
+ *
  * @author tiwe
  *
  * @param <T>
  */
 public final class ResultIterator<T> implements CloseableIterator<T> {
 
+    static final int DEFAULT_BATCH_SIZE = 32;
+
     private final ScoreDoc[] scoreDocs;
 
     private int cursor;
@@ -44,30 +52,67 @@ public final class ResultIterator<T> implements CloseableIterator<T> {
 
     private final Function<Document,T> transformer;
 
-    public ResultIterator(ScoreDoc[] scoreDocs, int offset, Searcher searcher, 
+    private final Document[] batch;
+
+    private int batchStart, batchEnd;
+
+    public ResultIterator(ScoreDoc[] scoreDocs, int offset, Searcher searcher,
             @Nullable FieldSelector fieldSelector, Function<Document, T> transformer) {
+        this(scoreDocs, offset, searcher, fieldSelector, transformer, DEFAULT_BATCH_SIZE);
+    }
+
+    public ResultIterator(ScoreDoc[] scoreDocs, int offset, Searcher searcher,
+            @Nullable FieldSelector fieldSelector, Function<Document, T> transformer, int batchSize) {
         this.scoreDocs = scoreDocs;
         this.cursor = offset;
         this.searcher = searcher;
         this.fieldSelector = fieldSelector;
         this.transformer = transformer;
+        this.batch = new Document[Math.max(1, Math.min(batchSize, scoreDocs.length - offset))];
+        this.batchStart = offset;
+        this.batchEnd = offset;
     }
 
     @Override
     public boolean hasNext() {
-        return cursor != scoreDocs.length;
+        return cursor < scoreDocs.length;
     }
 
     @Override
     public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (cursor == batchEnd) {
+            loadBatch();
+        }
+        Document document = batch[cursor - batchStart];
+        batch[cursor - batchStart] = null;
+        cursor++;
+        return transformer.apply(document);
+    }
+
+    private void loadBatch() {
+        batchStart = cursor;
+        batchEnd = Math.min(cursor + batch.length, scoreDocs.length);
+        // doc id in the high and batch position in the low bits
+        long[] docs = new long[batchEnd - batchStart];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = ((long)scoreDocs[batchStart + i].doc << 32) | i;
+        }
+        Arrays.sort(docs);
+        for (long entry : docs) {
+            batch[(int)entry] = loadDocument(searcher, (int)(entry >>> 32), fieldSelector);
+        }
+    }
+
+    static Document loadDocument(Searcher searcher, int doc, @Nullable FieldSelector fieldSelector) {
         try {
-            Document document;
             if (fieldSelector != null) {
-                document = searcher.doc(scoreDocs[cursor++].doc, fieldSelector);
+                return searcher.doc(doc, fieldSelector);
             } else {
-                document = searcher.doc(scoreDocs[cursor++].doc);
+                return searcher.doc(doc);
             }
-            return transformer.apply(document);
         } catch (IOException e) {
             throw new QueryException(e);
         }
@@ -83,4 +128,4 @@ public final class ResultIterator<T> implements CloseableIterator<T> {
 
     }
 
-}
\ No newline at end of file
+}
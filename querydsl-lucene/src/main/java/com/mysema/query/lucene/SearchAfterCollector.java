@@ -0,0 +1,194 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.ScoreCachingWrappingScorer;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.ReaderUtil;
+
+/**
+ * SearchAfterCollector forwards only the hits which come after a given hit in score or
+ * sort order to a delegate collector
+ *
+ * <p>For score order the score and doc id of the given hit are used. For sort order the
+ * sort values are read from the document of the given hit, so the hit needs to originate
+ * from the same IndexReader.</p>
+ */
+public final class SearchAfterCollector extends Collector {
+
+    private final Collector delegate;
+
+    private final ScoreDoc after;
+
+    @Nullable
+    private final FieldComparator[] comparators;
+
+    @Nullable
+    private final int[] reverseMul;
+
+    private Scorer scorer;
+
+    private int docBase;
+
+    /**
+     * Create a new SearchAfterCollector for score order
+     *
+     * @param delegate collector for the hits after the given hit
+     * @param after last hit of the previous page
+     */
+    public SearchAfterCollector(Collector delegate, ScoreDoc after) {
+        this.delegate = delegate;
+        this.after = after;
+        this.comparators = null;
+        this.reverseMul = null;
+    }
+
+    /**
+     * Create a new SearchAfterCollector for the given sort order
+     *
+     * @param delegate collector for the hits after the given hit
+     * @param after last hit of the previous page
+     * @param sort sort order
+     * @param reader reader the given hit originates from
+     * @throws IOException
+     */
+    public SearchAfterCollector(Collector delegate, ScoreDoc after, Sort sort, IndexReader reader)
+            throws IOException {
+        this.delegate = delegate;
+        this.after = after;
+        SortField[] fields = sort.getSort();
+        this.comparators = new FieldComparator[fields.length];
+        this.reverseMul = new int[fields.length];
+
+        List<IndexReader> subReaders = new ArrayList<IndexReader>();
+        ReaderUtil.gatherSubReaders(subReaders, reader);
+        IndexReader afterReader = null;
+        int afterBase = 0;
+        for (IndexReader subReader : subReaders) {
+            if (after.doc < afterBase + subReader.maxDoc()) {
+                afterReader = subReader;
+                break;
+            }
+            afterBase += subReader.maxDoc();
+        }
+        if (afterReader == null) {
+            throw new IllegalArgumentException("Document " + after.doc + " is not in the given reader");
+        }
+
+        // the single slot of each comparator holds the sort value of the given hit
+        for (int i = 0; i < fields.length; i++) {
+            comparators[i] = fields[i].getComparator(1, i);
+            comparators[i].setNextReader(afterReader, afterBase);
+            comparators[i].setScorer(new ConstantScorer(after.score));
+            comparators[i].copy(0, after.doc - afterBase);
+            comparators[i].setBottom(0);
+            reverseMul[i] = fields[i].getReverse() ? -1 : 1;
+        }
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        this.scorer = new ScoreCachingWrappingScorer(scorer);
+        if (comparators != null) {
+            for (FieldComparator comparator : comparators) {
+                comparator.setScorer(this.scorer);
+            }
+        }
+        delegate.setScorer(this.scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        if (isAfter(doc)) {
+            delegate.collect(doc);
+        }
+    }
+
+    private boolean isAfter(int doc) throws IOException {
+        if (comparators == null) {
+            float score = scorer.score();
+            return score < after.score || (score == after.score && docBase + doc > after.doc);
+        }
+        for (int i = 0; i < comparators.length; i++) {
+            int c = reverseMul[i] * comparators[i].compareBottom(doc);
+            if (c != 0) {
+                return c < 0;
+            }
+        }
+        return docBase + doc > after.doc;
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) throws IOException {
+        this.docBase = docBase;
+        if (comparators != null) {
+            for (FieldComparator comparator : comparators) {
+                comparator.setNextReader(reader, docBase);
+            }
+        }
+        delegate.setNextReader(reader, docBase);
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return delegate.acceptsDocsOutOfOrder();
+    }
+
+    /**
+     * Scorer providing the score of the given hit to relevance comparators
+     */
+    private static final class ConstantScorer extends Scorer {
+
+        private final float score;
+
+        ConstantScorer(float score) {
+            super(null);
+            this.score = score;
+        }
+
+        @Override
+        public float score() {
+            return score;
+        }
+
+        @Override
+        public int docID() {
+            return NO_MORE_DOCS;
+        }
+
+        @Override
+        public int nextDoc() {
+            return NO_MORE_DOCS;
+        }
+
+        @Override
+        public int advance(int target) {
+            return NO_MORE_DOCS;
+        }
+
+    }
+
+}
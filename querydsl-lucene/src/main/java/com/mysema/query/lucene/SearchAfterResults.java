@@ -0,0 +1,75 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * SearchAfterResults is a page of search results with the last hit of the page, which
+ * can be used to fetch the following page
+ *
+ * @param <T> result type
+ */
+public final class SearchAfterResults<T> {
+
+    private final List<T> results;
+
+    @Nullable
+    private final ScoreDoc last;
+
+    private final int total;
+
+    public SearchAfterResults(List<T> results, @Nullable ScoreDoc last, int total) {
+        this.results = results;
+        this.last = last;
+        this.total = total;
+    }
+
+    /**
+     * Get the results of this page
+     *
+     * @return
+     */
+    public List<T> getResults() {
+        return results;
+    }
+
+    /**
+     * Get the last hit of this page or null, if this page is empty
+     *
+     * @return
+     */
+    @Nullable
+    public ScoreDoc getLast() {
+        return last;
+    }
+
+    /**
+     * Get the amount of hits after the previous page
+     *
+     * @return
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return results.isEmpty();
+    }
+
+}
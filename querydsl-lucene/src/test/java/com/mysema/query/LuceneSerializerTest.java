@@ -17,7 +17,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
@@ -423,6 +425,72 @@ public class LuceneSerializerTest {
         testQuery(title.eq("jurassic").or(title.eq("park")), "title:jurassic title:park", 1);
     }
 
+    @Test
+    public void In_Numeric() throws Exception {
+        testQuery(year.in(1990, 1991), "year:" + YEAR_PREFIX_CODED + " year:" + NumericUtils.intToPrefixCoded(1991), 1);
+    }
+
+    @Test
+    public void In_Large_Collection() throws Exception {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            values.add("value" + i);
+        }
+        testQuery(title.in(values), 0);
+        values.add("jurassic");
+        testQuery(title.in(values), 1);
+        testQuery(title.notIn(values), 0);
+        values.add("jurassic park");
+        testQuery(title.in(values), 1);
+    }
+
+    @Test
+    public void NotIn_Large_Collection() throws Exception {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            values.add("value" + i);
+        }
+        testQuery(title.notIn(values), 1);
+        testQuery(title.notIn(values).and(rating.eq("good")), 1);
+        values.add("park");
+        testQuery(title.notIn(values), 0);
+        testQuery(title.notIn(values).or(rating.eq("good")), 1);
+    }
+
+    @Test
+    public void NotIn_Large_Numeric_Collection() throws Exception {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 1990; i++) {
+            values.add(i);
+        }
+        testQuery(year.notIn(values), 1);
+        values.add(1990);
+        testQuery(year.notIn(values), 0);
+    }
+
+    @Test
+    public void Ne_And_In_Large_Collection() throws Exception {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < 2000; i++) {
+            values.add("value" + i);
+        }
+        values.add("jurassic");
+        testQuery(title.in(values).and(rating.ne("bad")), 1);
+        testQuery(title.in(values).and(rating.ne("good")), 0);
+        testQuery(title.in(values).and(title.ne("park")), 0);
+    }
+
+    @Test
+    public void In_Large_Numeric_Collection() throws Exception {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 1990; i++) {
+            values.add(i);
+        }
+        testQuery(year.in(values), 0);
+        values.add(1990);
+        testQuery(year.in(values), 1);
+    }
+
     @Test
     public void Lt() throws Exception {
         testQuery(rating.lt("Superb"), "rating:{* TO superb}", 1);
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Index;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.MaxFieldLength;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+
+public abstract class AbstractCollectorTest {
+
+    protected IndexSearcher searcher;
+
+    @Before
+    public void setUp() throws Exception {
+        RAMDirectory idx = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(idx, new StandardAnalyzer(Version.LUCENE_30), true,
+                MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 10; i++) {
+            Document document = new Document();
+            document.add(new Field("id", String.valueOf(i), Store.YES, Index.NOT_ANALYZED));
+            writer.addDocument(document);
+        }
+        writer.close();
+        searcher = new IndexSearcher(idx);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        searcher.close();
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Index;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.MaxFieldLength;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mysema.query.SearchResults;
+import com.mysema.query.types.path.NumberPath;
+import com.mysema.query.types.path.StringPath;
+
+public class ConcurrentMultiSearcherTest {
+
+    private ExecutorService executor;
+
+    private ConcurrentMultiSearcher searcher;
+
+    private StringPath title;
+
+    private NumberPath<Integer> year;
+
+    private IndexSearcher createSearcher(int... years) throws Exception {
+        RAMDirectory idx = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(idx, new StandardAnalyzer(Version.LUCENE_30), true,
+                MaxFieldLength.UNLIMITED);
+        for (int year : years) {
+            Document document = new Document();
+            document.add(new Field("title", "Title " + year, Store.YES, Index.ANALYZED));
+            document.add(new NumericField("year", Store.YES, true).setIntValue(year));
+            writer.addDocument(document);
+        }
+        writer.close();
+        return new IndexSearcher(idx);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(3);
+        searcher = new ConcurrentMultiSearcher(executor,
+                createSearcher(2001, 2004, 2007),
+                createSearcher(2002, 2005, 2008),
+                createSearcher(2003, 2006, 2009));
+        QDocument entityPath = new QDocument("doc");
+        title = entityPath.title;
+        year = entityPath.year;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        searcher.close();
+        executor.shutdown();
+    }
+
+    @Test
+    public void Count() {
+        assertEquals(9, new LuceneQuery(searcher).count());
+        assertEquals(5, new LuceneQuery(searcher).where(year.gt(2004)).count());
+    }
+
+    @Test
+    public void Count_Is_Distributed() {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor)executor;
+        long tasks = pool.getTaskCount();
+        assertEquals(9, new LuceneQuery(searcher).count());
+        assertEquals(tasks + 3, pool.getTaskCount());
+    }
+
+    @Test
+    public void Count_With_Max() throws Exception {
+        CountingCollector collector = new CountingCollector(4);
+        searcher.search(new MatchAllDocsQuery(), null, collector);
+        assertEquals(4, collector.getCount());
+    }
+
+    @Test
+    public void Exists() {
+        assertTrue(new LuceneQuery(searcher).where(year.gt(2008)).exists());
+        assertFalse(new LuceneQuery(searcher).where(year.gt(2009)).exists());
+    }
+
+    @Test
+    public void List_Sorted() {
+        List<Document> documents = new LuceneQuery(searcher).orderBy(year.desc()).limit(4).list();
+        assertEquals(4, documents.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(String.valueOf(2009 - i), documents.get(i).get("year"));
+        }
+    }
+
+    @Test
+    public void List_Sorted_With_Offset() {
+        List<Document> documents = new LuceneQuery(searcher).orderBy(year.asc()).offset(3).limit(3).list();
+        assertEquals(3, documents.size());
+        assertEquals("2004", documents.get(0).get("year"));
+        assertEquals("2005", documents.get(1).get("year"));
+        assertEquals("2006", documents.get(2).get("year"));
+    }
+
+    @Test
+    public void List_Results() {
+        SearchResults<Document> results = new LuceneQuery(searcher)
+            .where(title.eq("title")).orderBy(year.asc()).limit(2).listResults();
+        assertEquals(9, results.getTotal());
+        assertEquals("2001", results.getResults().get(0).get("year"));
+        assertEquals("2002", results.getResults().get(1).get("year"));
+    }
+
+    @Test
+    public void List_Unsorted() {
+        assertEquals(9, new LuceneQuery(searcher).where(title.eq("title")).list().size());
+    }
+
+}
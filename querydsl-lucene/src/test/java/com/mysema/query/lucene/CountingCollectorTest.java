@@ -0,0 +1,41 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.Test;
+
+public class CountingCollectorTest extends AbstractCollectorTest {
+
+    @Test
+    public void Count() throws Exception {
+        CountingCollector collector = new CountingCollector();
+        searcher.search(new MatchAllDocsQuery(), null, collector);
+        assertEquals(10, collector.getCount());
+    }
+
+    @Test
+    public void Count_With_Max() throws Exception {
+        CountingCollector collector = new CountingCollector(3);
+        try {
+            searcher.search(new MatchAllDocsQuery(), null, collector);
+        } catch (CountingCollector.TerminatedException e) {
+            // expected
+        }
+        assertEquals(3, collector.getCount());
+    }
+
+}
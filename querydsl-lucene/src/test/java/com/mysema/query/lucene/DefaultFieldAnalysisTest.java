@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Index;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.MaxFieldLength;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.Predicate;
+import com.mysema.query.types.path.PathBuilder;
+import com.mysema.query.types.path.StringPath;
+
+public class DefaultFieldAnalysisTest {
+
+    private final QueryMetadata metadata = new DefaultQueryMetadata();
+
+    private LuceneSerializer serializer;
+
+    private IndexSearcher searcher;
+
+    private StringPath title, author;
+
+    private void addTokens(Document document, String field, String... tokens) {
+        for (String token : tokens) {
+            document.add(new Field(field, token, Store.NO, Index.ANALYZED));
+            document.add(new Field(field + "_rev", new StringBuilder(token).reverse().toString(),
+                    Store.NO, Index.NOT_ANALYZED));
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                document.add(new Field(field + "_ngram", token.substring(i, i + 3), Store.NO, Index.NOT_ANALYZED));
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        RAMDirectory idx = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(idx, new StandardAnalyzer(Version.LUCENE_30), true,
+                MaxFieldLength.UNLIMITED);
+        Document document = new Document();
+        addTokens(document, "title", "jurassic", "park");
+        document.add(new Field("author", "Michael Crichton", Store.NO, Index.ANALYZED));
+        writer.addDocument(document);
+        writer.close();
+        searcher = new IndexSearcher(idx);
+
+        FieldAnalysis analysis = new DefaultFieldAnalysis()
+            .addReverseField("title", "title_rev")
+            .addNGramField("title", "title_ngram", 3, 3);
+        serializer = new LuceneSerializer(true, true, Locale.getDefault(), new FilterCache(), analysis);
+        PathBuilder<Object> entityPath = new PathBuilder<Object>(Object.class, "obj");
+        title = entityPath.getString("title");
+        author = entityPath.getString("author");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        searcher.close();
+    }
+
+    private void testQuery(Predicate predicate, String expectedQuery, int expectedHits) throws Exception {
+        Query query = serializer.toQuery(predicate, metadata);
+        assertEquals(expectedQuery, query.toString());
+        assertEquals(expectedHits, searcher.search(query, 10).totalHits);
+    }
+
+    @Test
+    public void Contains() throws Exception {
+        testQuery(title.contains("ras"), "title_ngram:ras", 1);
+        testQuery(title.contains("rassi"), "+title_ngram:ras +title_ngram:ass +title_ngram:ssi", 1);
+        testQuery(title.contains("rassa"), "+title_ngram:ras +title_ngram:ass +title_ngram:ssa", 0);
+    }
+
+    @Test
+    public void Contains_Short_Term() throws Exception {
+        testQuery(title.contains("ra"), "title:*ra*", 1);
+    }
+
+    @Test
+    public void Contains_Multiple_Terms() throws Exception {
+        testQuery(title.contains("rassic par"), "+(+title_ngram:ras +title_ngram:ass +title_ngram:ssi +title_ngram:sic) +title_ngram:par", 1);
+    }
+
+    @Test
+    public void EndsWith() throws Exception {
+        testQuery(title.endsWith("ark"), "title_rev:kra*", 1);
+        testQuery(title.endsWith("sic park"), "+title_ngram:sic +title_rev:krap*", 1);
+    }
+
+    @Test
+    public void StartsWith_Multiple_Terms() throws Exception {
+        testQuery(title.startsWith("jura par"), "+title:jura* +title_ngram:par", 1);
+    }
+
+    @Test
+    public void Without_Companion_Fields() throws Exception {
+        testQuery(author.contains("icha"), "author:*icha*", 1);
+        testQuery(author.endsWith("ton"), "author:*ton", 1);
+    }
+
+}
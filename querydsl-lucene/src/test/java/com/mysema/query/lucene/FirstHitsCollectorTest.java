@@ -0,0 +1,44 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.Test;
+
+public class FirstHitsCollectorTest extends AbstractCollectorTest {
+
+    @Test
+    public void Collect() throws Exception {
+        FirstHitsCollector collector = new FirstHitsCollector(20);
+        searcher.search(new MatchAllDocsQuery(), null, collector);
+        assertEquals(10, collector.getCount());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(String.valueOf(i), searcher.doc(collector.getDoc(i)).get("id"));
+        }
+    }
+
+    @Test
+    public void Collect_With_Max() throws Exception {
+        FirstHitsCollector collector = new FirstHitsCollector(2);
+        try {
+            searcher.search(new MatchAllDocsQuery(), null, collector);
+        } catch (CountingCollector.TerminatedException e) {
+            // expected
+        }
+        assertEquals(2, collector.getCount());
+    }
+
+}
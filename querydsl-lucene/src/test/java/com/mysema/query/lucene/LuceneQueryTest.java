@@ -21,9 +21,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -41,8 +43,11 @@ import org.apache.lucene.index.IndexWriter.MaxFieldLength;
 import org.apache.lucene.search.DuplicateFilter;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Searcher;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
 import org.junit.After;
@@ -50,11 +55,16 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.google.common.base.Functions;
+import com.mysema.commons.lang.IteratorAdapter;
+import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.QueryException;
+import com.mysema.query.QueryMetadata;
 import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
 import com.mysema.query.types.ParamNotSetException;
+import com.mysema.query.types.Path;
 import com.mysema.query.types.expr.Param;
 import com.mysema.query.types.path.NumberPath;
 import com.mysema.query.types.path.StringPath;
@@ -446,6 +456,55 @@ public class LuceneQueryTest {
         assertNull(document.get("year"));
     }
 
+    @Test
+    public void Load_From_DocumentTransformer() {
+        DocumentTransformer<String> transformer = new DocumentTransformer<String>() {
+            @Override
+            public String apply(Document input) {
+                assertNull(input.get("year"));
+                return input.get("title");
+            }
+            @Override
+            public Collection<? extends Path<?>> getPaths() {
+                return Collections.singleton(title);
+            }
+        };
+        TypedQuery<String> typedQuery = new TypedQuery<String>(new LuceneSerializer(true, true), searcher, transformer);
+        assertEquals(4, typedQuery.where(title.ne("")).list().size());
+    }
+
+    @Test
+    public void Iterate_In_Batches() throws IOException {
+        List<Document> documents = query.where(title.ne("")).orderBy(gross.desc()).list();
+        ScoreDoc[] scoreDocs = searcher.search(new MatchAllDocsQuery(), null, 4,
+                new Sort(new SortField("gross", SortField.DOUBLE, true))).scoreDocs;
+        ResultIterator<Document> iterator = new ResultIterator<Document>(scoreDocs, 1, searcher, null,
+                Functions.<Document>identity(), 2);
+        for (int i = 1; i < documents.size(); i++) {
+            assertEquals(documents.get(i).get("title"), iterator.next().get("title"));
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void Cached_Filter() {
+        assertEquals(3, query.where(title.ne("")).filter(year.gt(1900)).count());
+        assertEquals(1, query.filter(gross.lt(50.0)).list().size());
+    }
+
+    @Test
+    public void Cached_Filter_With_Filter() {
+        query.filter(new DuplicateFilter("year")).filter(year.gt(1900));
+        assertEquals(2, query.count());
+    }
+
+    @Test
+    public void Cached_Filter_Is_Shared() {
+        LuceneSerializer serializer = new LuceneSerializer(true, true);
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        assertSame(serializer.toFilter(year.gt(1900), metadata), serializer.toFilter(year.gt(1900), metadata));
+    }
+
     @Test
     public void SingleResult() {
         assertNotNull(query.where(title.ne("")).singleResult());
@@ -482,6 +541,83 @@ public class LuceneQueryTest {
         assertEquals("The Lord of the Rings", query.where(title.ne("")).limit(1).offset(2).singleResult().get("title"));
     }
 
+    @Test
+    public void Single_Result_Considers_Order() {
+        assertEquals("Nummisuutarit", query.where(title.ne("")).orderBy(year.asc()).singleResult().get("title"));
+        assertEquals("The Lord of the Rings", query.offset(1).singleResult().get("title"));
+    }
+
+    @Test
+    public void Unique_Result_Considers_Order() {
+        assertEquals("Nummisuutarit", query.where(title.ne("")).orderBy(year.asc()).limit(1).uniqueResult().get("title"));
+    }
+
+    @Test
+    public void List_After_Sorted() {
+        query.where(title.ne("")).orderBy(gross.desc()).limit(3);
+        SearchAfterResults<Document> page = query.listAfter(null);
+        assertEquals(3, page.getResults().size());
+        assertEquals("Jurassic Park", page.getResults().get(0).get("title"));
+        assertEquals("Introduction to Algorithms", page.getResults().get(2).get("title"));
+
+        page = query.listAfter(page.getLast());
+        assertEquals(1, page.getResults().size());
+        assertEquals("Nummisuutarit", page.getResults().get(0).get("title"));
+
+        page = query.listAfter(page.getLast());
+        assertTrue(page.isEmpty());
+        assertNull(page.getLast());
+    }
+
+    @Test
+    public void List_After_Unsorted() {
+        query.where(title.ne("")).limit(3);
+        SearchAfterResults<Document> page = query.listAfter(null);
+        assertEquals(3, page.getResults().size());
+        assertEquals(4, page.getTotal());
+        page = query.listAfter(page.getLast());
+        assertEquals(1, page.getResults().size());
+        assertEquals("Introduction to Algorithms", page.getResults().get(0).get("title"));
+    }
+
+    @Test(expected=QueryException.class)
+    public void List_After_Without_Limit() {
+        query.where(title.ne("")).listAfter(null);
+    }
+
+    @Test
+    public void Iterate_In_Index_Order() {
+        List<Document> documents = new IteratorAdapter<Document>(
+                query.where(year.gt(1900)).orderBy(gross.asc()).iterateInIndexOrder()).asList();
+        assertEquals(3, documents.size());
+        assertEquals("Jurassic Park", documents.get(0).get("title"));
+        assertEquals("The Lord of the Rings", documents.get(1).get("title"));
+        assertEquals("Introduction to Algorithms", documents.get(2).get("title"));
+    }
+
+    @Test
+    public void Iterate_In_Index_Order_With_Limit_And_Offset() {
+        List<Document> documents = new IteratorAdapter<Document>(
+                query.limit(2).offset(1).iterateInIndexOrder()).asList();
+        assertEquals(2, documents.size());
+        assertEquals("Nummisuutarit", documents.get(0).get("title"));
+        assertEquals("The Lord of the Rings", documents.get(1).get("title"));
+    }
+
+    @Test
+    public void Iterate_In_Index_Order_In_Batches() throws IOException {
+        DocSetCollector collector = new DocSetCollector(searcher.maxDoc());
+        searcher.search(new MatchAllDocsQuery(), null, collector);
+        List<Document> documents = new IteratorAdapter<Document>(new DocSetResultIterator<Document>(
+                collector.getDocs().iterator(), 1, 3, searcher, null, Functions.<Document>identity(), 2)).asList();
+        List<Document> expected = new IteratorAdapter<Document>(
+                query.limit(3).offset(1).iterateInIndexOrder()).asList();
+        assertEquals(3, documents.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).get("title"), documents.get(i).get("title"));
+        }
+    }
+
     @Test(expected=NonUniqueResultException.class)
     public void UniqueResult_Contract() {
         query.where(title.ne("")).uniqueResult();
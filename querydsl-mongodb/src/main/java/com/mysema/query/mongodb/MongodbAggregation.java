@@ -0,0 +1,281 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.mongodb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mysema.query.QueryModifiers;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.Operator;
+import com.mysema.query.types.Ops;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.Path;
+
+/**
+ * MongodbAggregation translates group keys and aggregate expressions into the arguments
+ * of the Mongodb group command and the results of the command into rows
+ *
+ * <p>The supported aggregates are count, sum, avg, min and max. Ordering, offset and limit
+ * are applied to the grouped rows.</p>
+ */
+public final class MongodbAggregation {
+
+    private static final Set<Operator<?>> AGGREGATES = ImmutableSet.<Operator<?>>of(
+            Ops.AggOps.COUNT_AGG, Ops.AggOps.COUNT_ALL_AGG,
+            Ops.AggOps.SUM_AGG, Ops.AggOps.AVG_AGG, Ops.AggOps.MIN_AGG, Ops.AggOps.MAX_AGG);
+
+    private static final String PREFIX = "agg";
+
+    private final MongodbSerializer serializer;
+
+    private final List<Expression<?>> groupBy;
+
+    private final List<Expression<?>> columns;
+
+    private final int projectionSize;
+
+    private final List<OrderSpecifier<?>> orderBy;
+
+    public MongodbAggregation(MongodbSerializer serializer, List<? extends Expression<?>> groupBy,
+            Expression<?>[] projection, List<OrderSpecifier<?>> orderBy) {
+        this.serializer = serializer;
+        this.groupBy = new ArrayList<Expression<?>>(groupBy);
+        this.columns = new ArrayList<Expression<?>>(Arrays.asList(projection));
+        this.projectionSize = projection.length;
+        this.orderBy = orderBy;
+        // order targets are evaluated as additional columns
+        for (OrderSpecifier<?> order : orderBy) {
+            columns.add(order.getTarget());
+        }
+        for (Expression<?> key : groupBy) {
+            if (!(key instanceof Path<?>)) {
+                throw new IllegalArgumentException("Group key " + key + " is not a path");
+            }
+        }
+        for (Expression<?> column : columns) {
+            if (!groupBy.contains(column) && !isAggregate(column)) {
+                throw new IllegalArgumentException(column + " is neither a group key nor an aggregate");
+            }
+        }
+    }
+
+    private static boolean isAggregate(Expression<?> expr) {
+        return expr instanceof Operation<?> && AGGREGATES.contains(((Operation<?>)expr).getOperator());
+    }
+
+    private String getKey(Expression<?> path) {
+        return serializer.handle(path).toString();
+    }
+
+    /**
+     * Get the key argument of the group command
+     *
+     * @return
+     */
+    public DBObject getKeys() {
+        BasicDBObject keys = new BasicDBObject();
+        for (Expression<?> key : groupBy) {
+            keys.append(getKey(key), true);
+        }
+        return keys;
+    }
+
+    /**
+     * Get the initial aggregation state of a group
+     *
+     * @return
+     */
+    public DBObject getInitial() {
+        BasicDBObject initial = new BasicDBObject();
+        for (int i = 0; i < columns.size(); i++) {
+            Expression<?> column = columns.get(i);
+            if (!isAggregate(column)) {
+                continue;
+            }
+            Operator<?> op = ((Operation<?>)column).getOperator();
+            String name = PREFIX + i;
+            if (op == Ops.AggOps.MIN_AGG || op == Ops.AggOps.MAX_AGG) {
+                initial.append(name, null);
+            } else if (op == Ops.AggOps.AVG_AGG) {
+                initial.append(name, 0);
+                initial.append(name + "c", 0);
+            } else {
+                initial.append(name, 0);
+            }
+        }
+        return initial;
+    }
+
+    /**
+     * Get the reduce function of the group command
+     *
+     * @return
+     */
+    public String getReduce() {
+        StringBuilder js = new StringBuilder("function(doc, out) {");
+        for (int i = 0; i < columns.size(); i++) {
+            Expression<?> column = columns.get(i);
+            if (!isAggregate(column)) {
+                continue;
+            }
+            Operation<?> operation = (Operation<?>)column;
+            Operator<?> op = operation.getOperator();
+            String out = "out." + PREFIX + i;
+            if (op == Ops.AggOps.COUNT_ALL_AGG) {
+                js.append(out).append("++;");
+                continue;
+            }
+            String value = "v" + i;
+            js.append("var ").append(value).append(" = ").append(toAccessor(getKey(operation.getArg(0)))).append(";");
+            js.append("if (").append(value).append(" != null) {");
+            if (op == Ops.AggOps.COUNT_AGG) {
+                js.append(out).append("++;");
+            } else if (op == Ops.AggOps.SUM_AGG) {
+                js.append(out).append(" += ").append(value).append(";");
+            } else if (op == Ops.AggOps.AVG_AGG) {
+                js.append(out).append(" += ").append(value).append(";").append(out).append("c++;");
+            } else {
+                String comparison = op == Ops.AggOps.MIN_AGG ? " < " : " > ";
+                js.append("if (").append(out).append(" == null || ").append(value).append(comparison)
+                  .append(out).append(") ").append(out).append(" = ").append(value).append(";");
+            }
+            js.append("}");
+        }
+        return js.append("}").toString();
+    }
+
+    private static String toAccessor(String key) {
+        String[] elements = key.split("\\.");
+        StringBuilder accessor = new StringBuilder("doc");
+        StringBuilder rv = new StringBuilder();
+        for (int i = 0; i < elements.length; i++) {
+            accessor.append("[\"").append(elements[i]).append("\"]");
+            if (i < elements.length - 1) {
+                rv.append("(").append(accessor).append(" == null ? null : ");
+            }
+        }
+        rv.append(accessor);
+        for (int i = 0; i < elements.length - 1; i++) {
+            rv.append(")");
+        }
+        return rv.toString();
+    }
+
+    /**
+     * Transform the result of the group command into ordered rows of the projection
+     *
+     * @param result
+     * @param modifiers
+     * @return
+     */
+    public List<Object[]> transform(List<?> result, QueryModifiers modifiers) {
+        List<Object[]> rows = new ArrayList<Object[]>(result.size());
+        for (Object group : result) {
+            DBObject dbObject = (DBObject)group;
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = getValue(dbObject, i);
+            }
+            rows.add(row);
+        }
+        if (!orderBy.isEmpty()) {
+            Collections.sort(rows, new Comparator<Object[]>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                public int compare(Object[] r1, Object[] r2) {
+                    for (int i = 0; i < orderBy.size(); i++) {
+                        Comparable<Object> v1 = (Comparable<Object>)r1[projectionSize + i];
+                        Object v2 = r2[projectionSize + i];
+                        int c;
+                        if (v1 == null) {
+                            c = v2 == null ? 0 : -1;
+                        } else {
+                            c = v2 == null ? 1 : v1.compareTo(v2);
+                        }
+                        if (c != 0) {
+                            return orderBy.get(i).isAscending() ? c : -c;
+                        }
+                    }
+                    return 0;
+                }
+            });
+        }
+        int from = modifiers.getOffset() != null ? (int)Math.min(modifiers.getOffset(), rows.size()) : 0;
+        int to = modifiers.getLimit() != null ? (int)Math.min(from + modifiers.getLimit(), rows.size()) : rows.size();
+        List<Object[]> rv = new ArrayList<Object[]>(to - from);
+        for (Object[] row : rows.subList(from, to)) {
+            rv.add(row.length > projectionSize ? Arrays.copyOf(row, projectionSize) : row);
+        }
+        return rv;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Nullable
+    private Object getValue(DBObject group, int index) {
+        Expression<?> column = columns.get(index);
+        if (!isAggregate(column)) {
+            Object value = group.get(getKey(column));
+            if (value instanceof String && Enum.class.isAssignableFrom(column.getType())) {
+                return Enum.valueOf((Class)column.getType(), (String)value);
+            }
+            return value;
+        }
+        Operator<?> op = ((Operation<?>)column).getOperator();
+        Object value = group.get(PREFIX + index);
+        if (op == Ops.AggOps.COUNT_AGG || op == Ops.AggOps.COUNT_ALL_AGG) {
+            return Long.valueOf(((Number)value).longValue());
+        } else if (op == Ops.AggOps.AVG_AGG) {
+            long count = ((Number)group.get(PREFIX + index + "c")).longValue();
+            return count > 0 ? Double.valueOf(((Number)value).doubleValue() / count) : null;
+        } else if (value instanceof Number && Number.class.isAssignableFrom(column.getType())) {
+            return cast((Number)value, column.getType());
+        } else {
+            return value;
+        }
+    }
+
+    private static Object cast(Number number, Class<?> type) {
+        if (type.equals(Integer.class)) {
+            return Integer.valueOf(number.intValue());
+        } else if (type.equals(Long.class)) {
+            return Long.valueOf(number.longValue());
+        } else if (type.equals(Short.class)) {
+            return Short.valueOf(number.shortValue());
+        } else if (type.equals(Byte.class)) {
+            return Byte.valueOf(number.byteValue());
+        } else if (type.equals(Float.class)) {
+            return Float.valueOf(number.floatValue());
+        } else if (type.equals(BigDecimal.class)) {
+            return new BigDecimal(number.toString());
+        } else if (type.equals(BigInteger.class)) {
+            return BigInteger.valueOf(number.longValue());
+        } else {
+            return Double.valueOf(number.doubleValue());
+        }
+    }
+
+}
@@ -16,21 +16,29 @@ package com.mysema.query.mongodb;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
 import com.google.common.base.Function;
-import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
 import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.EmptyCloseableIterator;
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.JoinExpression;
 import com.mysema.query.NonUniqueResultException;
+import com.mysema.query.QueryException;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
@@ -39,6 +47,7 @@ import com.mysema.query.SimpleQuery;
 import com.mysema.query.support.QueryMixin;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.ExpressionUtils;
+import com.mysema.query.types.FactoryExpression;
 import com.mysema.query.types.Operation;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.ParamExpression;
@@ -57,6 +66,34 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
     
     @SuppressWarnings("serial")
     private static class NoResults extends RuntimeException {}
+
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private static final int IN_CHUNK_SIZE = 10000;
+
+    /**
+     * Restriction of a reference path to the ids of joined documents
+     */
+    private static class IdFilter {
+
+        private final Path<?> path;
+
+        private final List<Object> ids;
+
+        private final boolean singleValued;
+
+        IdFilter(Path<?> path, List<Object> ids, boolean singleValued) {
+            this.path = path;
+            this.ids = ids;
+            this.singleValued = singleValued;
+        }
+
+        @SuppressWarnings("unchecked")
+        Predicate toPredicate(List<Object> values) {
+            return ExpressionUtils.in((Path<Object>)path, values);
+        }
+
+    }
     
     private final MongodbSerializer serializer;
 
@@ -66,6 +103,13 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
     private final Function<DBObject, K> transformer;
 
+    @Nullable
+    private Integer batchSize;
+
+    private int options;
+
+    private boolean snapshot;
+
     public MongodbQuery(DBCollection collection, Function<DBObject, K> transformer, MongodbSerializer serializer) {
         this.queryMixin = new QueryMixin<MongodbQuery<K>>(this, new DefaultQueryMetadata(false));
         this.transformer = transformer;
@@ -87,8 +131,12 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
     public boolean exists() {        
         try {
             QueryMetadata metadata = queryMixin.getMetadata();
-            Predicate filter = createFilter(metadata);
-            return collection.findOne(createQuery(filter)) != null;
+            for (Predicate filter : createFilters(metadata)) {
+                if (collection.findOne(createQuery(filter)) != null) {
+                    return true;
+                }
+            }
+            return false;
         } catch (NoResults ex) {
             return false;
         }        
@@ -107,45 +155,138 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
     
     @Nullable
     protected Predicate createJoinFilter(QueryMetadata metadata) {
-        Multimap<Expression<?>, Predicate> predicates = HashMultimap.<Expression<?>, Predicate>create();
+        return allOf(resolveJoins(metadata), null);
+    }
+
+    /**
+     * Create the filters of the root query. If the ids referenced by a single valued join
+     * of the root exceed {@link #getInChunkSize()} and the query is neither ordered nor
+     * restricted via limit or offset, the ids are split into chunks with one filter per chunk.
+     * The results of the filters are disjoint and are concatenated. Ordered and restricted
+     * queries use a single $in filter with all ids.
+     *
+     * @param metadata
+     * @return
+     */
+    protected List<Predicate> createFilters(QueryMetadata metadata) {
+        if (metadata.getJoins().isEmpty()) {
+            return Collections.singletonList(metadata.getWhere());
+        }
+        Collection<IdFilter> idFilters = resolveJoins(metadata);
+        IdFilter largest = null;
+        for (IdFilter idFilter : idFilters) {
+            if (idFilter.singleValued && (largest == null || idFilter.ids.size() > largest.ids.size())) {
+                largest = idFilter;
+            }
+        }
+        int chunkSize = getInChunkSize();
+        if (largest == null || largest.ids.size() <= chunkSize 
+                || !metadata.getOrderBy().isEmpty() || metadata.getModifiers().isRestricting()) {
+            return Collections.singletonList(ExpressionUtils.allOf(metadata.getWhere(), allOf(idFilters, null)));
+        }
+        Predicate others = ExpressionUtils.allOf(metadata.getWhere(), allOf(idFilters, largest));
+        List<Predicate> filters = new ArrayList<Predicate>();
+        for (List<Object> chunk : Lists.partition(largest.ids, chunkSize)) {
+            filters.add(ExpressionUtils.allOf(others, largest.toPredicate(chunk)));
+        }
+        return filters;
+    }
+
+    /**
+     * Resolve the joins of the given query into id filters of the root
+     */
+    private Collection<IdFilter> resolveJoins(QueryMetadata metadata) {
+        Multimap<Expression<?>, IdFilter> idFilters = LinkedHashMultimap.<Expression<?>, IdFilter>create();
         List<JoinExpression> joins = metadata.getJoins();
         for (int i = joins.size() - 1; i >= 0; i--) {
             JoinExpression join = joins.get(i);
             Path source = (Path)((Operation<?>)join.getTarget()).getArg(0);
             Path target = (Path)((Operation<?>)join.getTarget()).getArg(1);
-            Collection<Predicate> extraFilters = predicates.get(target.getRoot());
-            Predicate filter = ExpressionUtils.allOf(join.getCondition(), allOf(extraFilters));
-            List<Object> ids = getIds(target.getType(), filter);
+            List<Object> ids = getIds(target.getType(), join.getCondition(), idFilters.get(target.getRoot()));
             if (ids.isEmpty()) {
                 throw new NoResults();
             }
             Path path = new PathImpl<String>(String.class, source, "$id");
-            predicates.put(source.getRoot(), ExpressionUtils.in(path, ids));
-//            System.err.println(predicates);
+            boolean singleValued = !Collection.class.isAssignableFrom(source.getType());
+            idFilters.put(source.getRoot(), new IdFilter(path, ids, singleValued));
         }
         Path source = (Path)((Operation)joins.get(0).getTarget()).getArg(0);
-        return allOf(predicates.get(source.getRoot()));
+        return idFilters.get(source.getRoot());
     }
-    
-    private Predicate allOf(Collection<Predicate> predicates) {
-        return predicates != null ? ExpressionUtils.allOf(predicates) : null;
+
+    @Nullable
+    private Predicate allOf(Collection<IdFilter> idFilters, @Nullable IdFilter exclude) {
+        List<Predicate> predicates = new ArrayList<Predicate>(idFilters.size());
+        for (IdFilter idFilter : idFilters) {
+            if (idFilter != exclude) {
+                predicates.add(idFilter.toPredicate(idFilter.ids));
+            }
+        }
+        return ExpressionUtils.allOf(predicates);
     }
-    
+
+    /**
+     * Get the ids of the documents of the given type matching the given condition and
+     * referencing documents with the given ids. The largest id set is split into chunks of
+     * at most {@link #getInChunkSize()} ids which are queried separately.
+     *
+     * @param targetType
+     * @param condition
+     * @param idFilters
+     * @return
+     */
+    private List<Object> getIds(Class<?> targetType, @Nullable Predicate condition, Collection<IdFilter> idFilters) {
+        IdFilter largest = null;
+        for (IdFilter idFilter : idFilters) {
+            if (largest == null || idFilter.ids.size() > largest.ids.size()) {
+                largest = idFilter;
+            }
+        }
+        int chunkSize = getInChunkSize();
+        if (largest == null || largest.ids.size() <= chunkSize) {
+            return getIds(targetType, ExpressionUtils.allOf(condition, allOf(idFilters, null)));
+        }
+        Predicate others = ExpressionUtils.allOf(condition, allOf(idFilters, largest));
+        Set<Object> ids = new LinkedHashSet<Object>();
+        for (List<Object> chunk : Lists.partition(largest.ids, chunkSize)) {
+            ids.addAll(getIds(targetType, ExpressionUtils.allOf(others, largest.toPredicate(chunk))));
+        }
+        return new ArrayList<Object>(ids);
+    }
+
     protected List<Object> getIds(Class<?> targetType, Predicate condition) {
         DBCollection collection = getCollection(targetType);
-        // TODO : fetch only ids
-        DBCursor cursor = createCursor(collection, condition, QueryModifiers.EMPTY, Collections.<OrderSpecifier<?>>emptyList());
-        if (cursor.hasNext()) {
-            List<Object> ids = new ArrayList<Object>(cursor.count());
+        DBCursor cursor = collection.find(createQuery(condition), new BasicDBObject("_id", 1));
+        cursor.batchSize(getIdBatchSize());
+        try {
+            List<Object> ids = new ArrayList<Object>();
             for (DBObject obj : cursor) {
                 ids.add(obj.get("_id"));
             }
             return ids;
-        } else {
-            return Collections.emptyList();
+        } finally {
+            cursor.close();
         }
     }
-    
+
+    /**
+     * Get the batch size used to stream the ids of joined documents
+     *
+     * @return
+     */
+    protected int getIdBatchSize() {
+        return ID_BATCH_SIZE;
+    }
+
+    /**
+     * Get the maximum amount of ids used in a single $in filter when resolving joins
+     *
+     * @return
+     */
+    protected int getInChunkSize() {
+        return IN_CHUNK_SIZE;
+    }
+
     @Override
     public boolean notExists() {
         return !exists();
@@ -186,17 +327,86 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
         return queryMixin.set(param, value);
     }
 
+    /**
+     * Set the amount of documents fetched per round trip
+     *
+     * @param batchSize
+     * @return
+     */
+    public MongodbQuery<K> batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Allow the query to be served by slave members
+     *
+     * @return
+     */
+    public MongodbQuery<K> slaveOk() {
+        options |= Bytes.QUERYOPTION_SLAVEOK;
+        return this;
+    }
+
+    /**
+     * Disable the server side timeout of idle cursors
+     *
+     * @return
+     */
+    public MongodbQuery<K> noTimeout() {
+        options |= Bytes.QUERYOPTION_NOTIMEOUT;
+        return this;
+    }
+
+    /**
+     * Return each document only once, even if it is modified during the iteration.
+     * Snapshot queries can't be ordered.
+     *
+     * @return
+     */
+    public MongodbQuery<K> snapshot() {
+        this.snapshot = true;
+        return this;
+    }
+
     @Override
     public CloseableIterator<K> iterate() {
-        final DBCursor cursor = createCursor();
+        return iterate((DBObject)null);
+    }
+
+    /**
+     * Iterate over the results with only the fields of the given paths loaded
+     *
+     * @param paths
+     * @return
+     */
+    public CloseableIterator<K> iterate(Path<?>... paths) {
+        return iterate(serializer.toProjection(paths));
+    }
+
+    private CloseableIterator<K> iterate(@Nullable final DBObject fields) {
+        final Iterator<Predicate> filters;
+        try {
+            filters = createFilters(queryMixin.getMetadata()).iterator();
+        } catch (NoResults ex) {
+            return new EmptyCloseableIterator<K>();
+        }
         return new CloseableIterator<K>() {
+            private DBCursor cursor = createCursor(filters.next(), fields);
+
             @Override
             public boolean hasNext() {
+                // the cursors of the chunked filters are opened one at a time
+                while (!cursor.hasNext() && filters.hasNext()) {
+                    cursor.close();
+                    cursor = createCursor(filters.next(), fields);
+                }
                 return cursor.hasNext();
             }
 
             @Override
             public K next() {
+                hasNext();
                 return transformer.apply(cursor.next());
             }
 
@@ -206,6 +416,7 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
             @Override
             public void close() {
+                cursor.close();
             }
         };
     }
@@ -217,27 +428,72 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
     @Override
     public List<K> list() {
+        return list((DBObject)null);
+    }
+
+    /**
+     * Get the results with only the fields of the given paths loaded
+     *
+     * @param paths
+     * @return
+     */
+    public List<K> list(Path<?>... paths) {
+        return list(serializer.toProjection(paths));
+    }
+
+    private List<K> list(@Nullable DBObject fields) {
         try {
-            DBCursor cursor = createCursor();
-            List<K> results = new ArrayList<K>(cursor.size());
-            for (DBObject dbObject : cursor) {
-                results.add(transformer.apply(dbObject));
+            List<K> results = new ArrayList<K>();
+            for (Predicate filter : createFilters(queryMixin.getMetadata())) {
+                DBCursor cursor = createCursor(filter, fields);
+                try {
+                    for (DBObject dbObject : cursor) {
+                        results.add(transformer.apply(dbObject));
+                    }
+                } finally {
+                    cursor.close();
+                }
             }
-            return results;    
+            return results;
         } catch (NoResults ex) {
             return Collections.emptyList();
-        }        
+        }
     }
     
     protected DBCursor createCursor() {
+        return createCursor((DBObject)null);
+    }
+
+    /**
+     * Create a cursor for the results of this query
+     *
+     * @param fields field projection or null for all fields
+     * @return
+     */
+    protected DBCursor createCursor(@Nullable DBObject fields) {
+        return createCursor(createFilter(queryMixin.getMetadata()), fields);
+    }
+
+    /**
+     * Create a cursor for the results of this query with the given filter
+     *
+     * @param filter filter of the root query
+     * @param fields field projection or null for all fields
+     * @return
+     */
+    protected DBCursor createCursor(@Nullable Predicate filter, @Nullable DBObject fields) {
         QueryMetadata metadata = queryMixin.getMetadata();
-        Predicate filter = createFilter(metadata);
-        return createCursor(collection, filter, metadata.getModifiers(), metadata.getOrderBy());     
+        return createCursor(collection, filter, fields, metadata.getModifiers(), metadata.getOrderBy());
     }
 
     protected DBCursor createCursor(DBCollection collection, @Nullable Predicate where, QueryModifiers modifiers,
             List<OrderSpecifier<?>> orderBy) {
-        DBCursor cursor = collection.find(createQuery(where));
+        return createCursor(collection, where, null, modifiers, orderBy);
+    }
+
+    protected DBCursor createCursor(DBCollection collection, @Nullable Predicate where, @Nullable DBObject fields,
+            QueryModifiers modifiers, List<OrderSpecifier<?>> orderBy) {
+        DBCursor cursor = fields != null ? collection.find(createQuery(where), fields) : collection.find(createQuery(where));
         if (modifiers.getLimit() != null){
             cursor.limit(modifiers.getLimit().intValue());
         }
@@ -245,8 +501,20 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
             cursor.skip(modifiers.getOffset().intValue());
         }
         if (orderBy.size() > 0) {
+            if (snapshot) {
+                throw new QueryException("Snapshot queries can't be ordered");
+            }
             cursor.sort(serializer.toSort(orderBy));
         }
+        if (batchSize != null) {
+            cursor.batchSize(batchSize.intValue());
+        }
+        if (options != 0) {
+            cursor.addOption(options);
+        }
+        if (snapshot) {
+            cursor.snapshot();
+        }
         return cursor;
     }
 
@@ -257,13 +525,32 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
     @Override
     public K singleResult() {
+        return singleResult((DBObject)null);
+    }
+
+    /**
+     * Get the first result with only the fields of the given paths loaded
+     *
+     * @param paths
+     * @return
+     */
+    public K singleResult(Path<?>... paths) {
+        return singleResult(serializer.toProjection(paths));
+    }
+
+    private K singleResult(@Nullable DBObject fields) {
         try {
-            DBCursor c = createCursor().limit(1);
-            if (c.hasNext()){
-                return transformer.apply(c.next());
-            } else {
-                return null;
-            }    
+            for (Predicate filter : createFilters(queryMixin.getMetadata())) {
+                DBCursor c = createCursor(filter, fields).limit(1);
+                try {
+                    if (c.hasNext()){
+                        return transformer.apply(c.next());
+                    }
+                } finally {
+                    c.close();
+                }
+            }
+            return null;
         } catch (NoResults ex) {
             return null;
         }        
@@ -276,16 +563,21 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
             if (limit == null){
                 limit = 2l;
             }
-            DBCursor c = createCursor().limit(limit.intValue());
-            if (c.hasNext()){
-                K rv = transformer.apply(c.next());
-                if (c.hasNext()){
-                    throw new NonUniqueResultException();
+            K rv = null;
+            for (Predicate filter : createFilters(queryMixin.getMetadata())) {
+                DBCursor c = createCursor(filter, null).limit(limit.intValue());
+                try {
+                    while (c.hasNext()){
+                        if (rv != null){
+                            throw new NonUniqueResultException();
+                        }
+                        rv = transformer.apply(c.next());
+                    }
+                } finally {
+                    c.close();
                 }
-                return rv;
-            } else {
-                return null;
-            }    
+            }
+            return rv;
         } catch (NoResults ex) {
             return null;
         }        
@@ -313,8 +605,11 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
     @Override
     public long count() {
         try {
-            Predicate filter = createFilter(queryMixin.getMetadata());            
-            return collection.count(createQuery(filter));    
+            long count = 0;
+            for (Predicate filter : createFilters(queryMixin.getMetadata())) {
+                count += collection.count(createQuery(filter));
+            }
+            return count;
         } catch (NoResults ex) {
             return 0l;
         }        
@@ -325,6 +620,64 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
         return count();
     }
 
+    /**
+     * Group the results by the given paths for {@link #aggregate(Expression...)}
+     *
+     * @param paths
+     * @return
+     */
+    public MongodbQuery<K> groupBy(Path<?>... paths) {
+        return queryMixin.groupBy(paths);
+    }
+
+    /**
+     * Evaluate the given group keys and aggregates on the server, one row per group
+     *
+     * <p>The aggregation uses the group command, which returns all groups in a single
+     * reply document. The reply is limited to 16MB, the command supports at most 20000
+     * unique keys and it can't be used on sharded collections. Failures of the command
+     * are reported as QueryExceptions. The ids of joined documents are inlined into a 
+     * single $in filter.</p>
+     *
+     * @param projection group keys and count, sum, avg, min or max aggregates
+     * @return
+     */
+    public List<Object[]> aggregate(Expression<?>... projection) {
+        QueryMetadata metadata = queryMixin.getMetadata();
+        MongodbAggregation aggregation = new MongodbAggregation(serializer, metadata.getGroupBy(),
+                projection, metadata.getOrderBy());
+        try {
+            Predicate filter = createFilter(metadata);
+            DBObject result = collection.group(aggregation.getKeys(), createQuery(filter),
+                    aggregation.getInitial(), aggregation.getReduce());
+            return aggregation.transform((List<?>)result, metadata.getModifiers());
+        } catch (NoResults ex) {
+            return Collections.emptyList();
+        } catch (MongoException ex) {
+            throw new QueryException("Aggregation via the group command failed on "
+                    + collection.getName() + ", the command is limited to 20000 groups, "
+                    + "a 16MB reply and unsharded collections : " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Evaluate the given group keys and aggregates on the server and create one instance per group.
+     * The limits of {@link #aggregate(Expression...)} apply.
+     *
+     * @param <T>
+     * @param projection
+     * @return
+     */
+    public <T> List<T> aggregate(FactoryExpression<T> projection) {
+        List<Expression<?>> args = projection.getArgs();
+        List<Object[]> rows = aggregate(args.toArray(new Expression[args.size()]));
+        List<T> rv = new ArrayList<T>(rows.size());
+        for (Object[] row : rows) {
+            rv.add(projection.newInstance(row));
+        }
+        return rv;
+    }
+
     private DBObject createQuery(@Nullable Predicate predicate) {
         if (predicate != null){
             return (DBObject) serializer.handle(predicate);
@@ -48,6 +48,14 @@ public class MongodbSerializer implements Visitor<Object, Void> {
         return sort;
     }
 
+    public DBObject toProjection(Path<?>... paths) {
+        BasicDBObject projection = new BasicDBObject();
+        for (Path<?> path : paths) {
+            projection.append(path.accept(this, null).toString(), 1);
+        }
+        return projection;
+    }
+
     @Override
     public Object visit(Constant<?> expr, Void context) {
         if (Enum.class.isAssignableFrom(expr.getType())) {
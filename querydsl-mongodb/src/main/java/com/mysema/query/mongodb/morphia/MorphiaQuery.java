@@ -13,6 +13,8 @@
  */
 package com.mysema.query.mongodb.morphia;
 
+import javax.annotation.Nullable;
+
 import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.google.code.morphia.mapping.cache.DefaultEntityCache;
@@ -23,6 +25,7 @@ import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mysema.query.mongodb.MongodbQuery;
 import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Predicate;
 
 /**
  * MorphiaQuery extends MongodbQuery with Morphia specific transformations
@@ -54,9 +57,9 @@ public class MorphiaQuery<K> extends MongodbQuery<K> {
     }
 
     @Override
-    protected DBCursor createCursor() {
+    protected DBCursor createCursor(@Nullable Predicate filter, @Nullable DBObject fields) {
         cache.flush();
-        return super.createCursor();
+        return super.createCursor(filter, fields);
     }
 
     @Override
@@ -2,10 +2,12 @@ package com.mysema.query.mongodb;
 
 import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.net.UnknownHostException;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +16,8 @@ import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.mongodb.Mongo;
 import com.mongodb.MongoException;
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.mongodb.domain.Item;
 import com.mysema.query.mongodb.domain.QUser;
 import com.mysema.query.mongodb.domain.User;
@@ -115,6 +119,63 @@ public class JoinTest {
                 .singleResult().getFirstName());
     }
     
+    @Test
+    public void Deep_With_Chunked_Ids() {
+        MongodbQuery<User> query = new MorphiaQuery<User>(morphia, ds, user) {
+            @Override
+            protected int getInChunkSize() {
+                return 1;
+            }
+        };
+        assertEquals("Mike", query
+                .join(user.friend(), friend).on(friend.firstName.isNotNull())
+                .join(friend.friend(), friend2).on(friend2.firstName.isNotNull())
+                .where(user.firstName.ne("Mary"))
+                .singleResult().getFirstName());
+    }
+
+    private MongodbQuery<User> chunked() {
+        MongodbQuery<User> query = new MorphiaQuery<User>(morphia, ds, user) {
+            @Override
+            protected int getInChunkSize() {
+                return 1;
+            }
+        };
+        return query.join(user.friend(), friend).on(friend.firstName.isNotNull());
+    }
+
+    @Test
+    public void Root_With_Chunked_Ids() {
+        // Jane, Mary, Ann and Mike have friends
+        assertEquals(4, chunked().count());
+        assertEquals(4, chunked().list().size());
+        assertTrue(chunked().exists());
+        assertNotNull(chunked().singleResult());
+        assertEquals("Mike", chunked().where(user.firstName.eq("Mike")).uniqueResult().getFirstName());
+
+        CloseableIterator<User> users = chunked().iterate();
+        int count = 0;
+        while (users.hasNext()) {
+            assertNotNull(users.next());
+            count++;
+        }
+        users.close();
+        assertEquals(4, count);
+    }
+
+    @Test(expected=NonUniqueResultException.class)
+    public void Root_With_Chunked_Ids_Not_Unique() {
+        chunked().uniqueResult();
+    }
+
+    @Test
+    public void Root_With_Chunked_Ids_Ordered() {
+        List<User> users = chunked().orderBy(user.firstName.asc()).limit(3).list();
+        assertEquals(3, users.size());
+        assertEquals("Ann", users.get(0).getFirstName());
+        assertEquals("Mary", users.get(2).getFirstName());
+    }
+
     private MongodbQuery<User> query() {
         return new MorphiaQuery<User>(morphia, ds, user);
     }
@@ -36,7 +36,9 @@ import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.mongodb.Mongo;
 import com.mongodb.MongoException;
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.NonUniqueResultException;
+import com.mysema.query.QueryException;
 import com.mysema.query.SearchResults;
 import com.mysema.query.mongodb.domain.Address;
 import com.mysema.query.mongodb.domain.City;
@@ -47,6 +49,7 @@ import com.mysema.query.mongodb.domain.QUser;
 import com.mysema.query.mongodb.domain.User;
 import com.mysema.query.mongodb.domain.User.Gender;
 import com.mysema.query.mongodb.morphia.MorphiaQuery;
+import com.mysema.query.mongodb.morphia.MorphiaSerializer;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.Predicate;
@@ -122,6 +125,82 @@ public class MongodbQueryTest {
         where(user.firstName.isNotNull()).uniqueResult();
     }
 
+    @Test
+    public void List_With_Projection() {
+        List<User> users = where(user.firstName.eq("Jaakko")).list(user.firstName, user.age);
+        assertEquals(1, users.size());
+        assertEquals("Jaakko", users.get(0).getFirstName());
+        assertEquals(20, users.get(0).getAge());
+        assertNull(users.get(0).getLastName());
+        assertTrue(users.get(0).getAddresses().isEmpty());
+    }
+
+    @Test
+    public void Iterate_With_Projection() {
+        Iterator<User> users = where(user.firstName.eq("Jaakko")).iterate(user.lastName);
+        User u = users.next();
+        assertNull(u.getFirstName());
+        assertEquals("Jantunen", u.getLastName());
+        assertFalse(users.hasNext());
+    }
+
+    @Test
+    public void SingleResult_With_Projection() {
+        User u = where(user.firstName.eq("Jaakko")).singleResult(user.mainAddress().street);
+        assertNull(u.getFirstName());
+        assertEquals("Aakatu", u.getMainAddress().street);
+    }
+
+    @Test
+    public void Projection() {
+        assertEquals("{ \"firstName\" : 1 , \"mainAddress.street\" : 1}",
+                MorphiaSerializer.DEFAULT.toProjection(user.firstName, user.mainAddress().street).toString());
+    }
+
+    @Test
+    public void Iterate_With_Batch_Size() {
+        CloseableIterator<User> users = query().orderBy(user.age.asc()).batchSize(2).iterate();
+        try {
+            assertEquals(u1, users.next());
+            assertEquals(u2, users.next());
+            assertEquals(u3, users.next());
+        } finally {
+            users.close();
+        }
+    }
+
+    @Test
+    public void List_With_Options() {
+        assertEquals(asList(u1, u2, u3, u4), query().orderBy(user.age.asc()).batchSize(1).slaveOk().noTimeout().list());
+        assertEquals(4, query().snapshot().list().size());
+    }
+
+    @Test(expected=QueryException.class)
+    public void Snapshot_With_OrderBy() {
+        query().snapshot().orderBy(user.age.asc()).list();
+    }
+
+    @Test
+    public void Aggregate() {
+        List<Object[]> rows = query().groupBy(user.lastName).orderBy(user.lastName.asc())
+            .aggregate(user.lastName, user.age.sum(), user.age.avg(), user.id.count(), user.age.min(), user.age.max());
+        assertEquals(3, rows.size());
+        assertEquals(asList("Aakkonen", 40, 40.0, 1l, 40, 40), asList(rows.get(0)));
+        assertEquals(asList("BeekkoNen", 50, 50.0, 1l, 50, 50), asList(rows.get(1)));
+        assertEquals(asList("Jantunen", 50, 25.0, 2l, 20, 30), asList(rows.get(2)));
+    }
+
+    @Test
+    public void Aggregate_With_Filter_And_Modifiers() {
+        List<Object[]> rows = query().where(user.age.gt(20)).groupBy(user.firstName)
+            .orderBy(user.age.sum().desc()).limit(1)
+            .aggregate(user.firstName, user.mainAddress().city().latitude.max());
+        assertEquals(1, rows.size());
+        assertEquals(asList("Jaana", 61.30), asList(rows.get(0)));
+        assertTrue(query().where(user.firstName.eq("XXX")).groupBy(user.firstName)
+            .aggregate(user.firstName, user.age.sum()).isEmpty());
+    }
+
     @Test
     public void SingleResult(){
         where(user.firstName.isNotNull()).singleResult();